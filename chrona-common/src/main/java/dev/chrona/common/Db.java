@@ -1,40 +1,146 @@
 package dev.chrona.common;
 
 import com.zaxxer.hikari.*;
+import dev.chrona.common.metrics.HikariMetrics;
 import org.flywaydb.core.Flyway;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
 
 public final class Db {
 
-    private static HikariDataSource DS;
+    /** Name of this server towards Postgres (application_name); tells apart changes of other servers. */
+    private static final String NODE_ID = Env.get("CHRONA_NODE", "chrona-" + UUID.randomUUID().toString().substring(0, 8));
 
-    public static DataSource ds() {
-        if (DS == null) {
+    /**
+     * Connection pools by traffic class. Each subsystem borrows from its own pool, so a burst in one
+     * class (e.g. region-visit logging) can only exhaust its own connections, never those of /pay.
+     */
+    public enum Pool {
+        /** Money movement: wallets, ledger, holds, player rows. Small, fails fast. */
+        ECONOMY("economy", new PoolSettings(6, 2, 2_000, 0, false)),
+        /** Gameplay state: flags, quest state, jobs. */
+        GAMEPLAY("gameplay", new PoolSettings(4, 1, 5_000, 0, false)),
+        /** Append-only logging: one writer thread per {@code AppendPipeline} (region, flag, quest, job logs). */
+        TELEMETRY("telemetry", new PoolSettings(4, 0, 10_000, 0, false)),
+        /**
+         * Periodic background jobs: ledger maintenance (also writes wallets: hot-account folds, hold
+         * expiry), reconciliation, leaderboard seeds, telemetry partitions. Long queries wait here
+         * instead of blocking payments or the log writers.
+         */
+        MAINTENANCE("maintenance", new PoolSettings(4, 0, 30_000, 0, false));
+
+        private final String key;
+        private final PoolSettings defaults;
+
+        Pool(String key, PoolSettings defaults) {
+            this.key = key;
+            this.defaults = defaults;
+        }
+
+        /** Config key ("economy", "gameplay", "telemetry", "maintenance"). */
+        public String key() {
+            return key;
+        }
+
+        public PoolSettings defaults() {
+            return defaults;
+        }
+    }
+
+    /**
+     * Settings of one pool.
+     * @param maxSize             Max. connections
+     * @param minIdle             Connections kept open while idle
+     * @param connectionTimeoutMs Max. wait for a free connection before SQLException (min. 250)
+     * @param statementTimeoutMs  Postgres statement_timeout for the pool's sessions, 0 = none
+     * @param readOnly            Connections start read-only
+     */
+    public record PoolSettings(int maxSize, int minIdle, long connectionTimeoutMs, long statementTimeoutMs,
+                               boolean readOnly) {
+        public PoolSettings {
+            if (maxSize < 1)
+                throw new IllegalArgumentException("maxSize must be >= 1");
+            minIdle = Math.max(0, Math.min(minIdle, maxSize));
+            connectionTimeoutMs = Math.max(250, connectionTimeoutMs);
+            statementTimeoutMs = Math.max(0, statementTimeoutMs);
+        }
+    }
+
+    private static final Map<Pool, PoolSettings> SETTINGS = new EnumMap<>(Pool.class);
+    private static final Map<Pool, HikariDataSource> POOLS = new EnumMap<>(Pool.class);
+
+    /**
+     * Overrides the settings of a pool. Must be called before the pool is first used.
+     * @param pool     Pool to configure
+     * @param settings New settings
+     */
+    public static synchronized void configure(Pool pool, PoolSettings settings) {
+        if (POOLS.containsKey(pool))
+            throw new IllegalStateException("Pool " + pool.key() + " is already running");
+        SETTINGS.put(pool, settings);
+    }
+
+    /** Returns the pool of a traffic class, created on first use. */
+    public static synchronized DataSource ds(Pool pool) {
+        HikariDataSource ds = POOLS.get(pool);
+        if (ds == null) {
+            PoolSettings s = SETTINGS.getOrDefault(pool, pool.defaults());
             var c = new HikariConfig();
 
-            c.setJdbcUrl(Env.get("DB_URL","jdbc:postgresql://localhost:5432/chrona"));
-            c.setUsername(Env.get("DB_USER","chrona_app"));
-            c.setPassword(Env.get("DB_PASS","hallo123"));
+            c.setJdbcUrl(url());
+            c.setUsername(user());
+            c.setPassword(password());
             c.setDriverClassName("org.postgresql.Driver");
+            c.addDataSourceProperty("ApplicationName", NODE_ID);
+            if (s.statementTimeoutMs() > 0)
+                c.addDataSourceProperty("options", "-c statement_timeout=" + s.statementTimeoutMs());
 
-            c.setMaximumPoolSize(8);
-            DS = new HikariDataSource(c);
+            c.setPoolName("chrona-" + pool.key());
+            c.setMaximumPoolSize(s.maxSize());
+            c.setMinimumIdle(s.minIdle());
+            c.setConnectionTimeout(s.connectionTimeoutMs());
+            c.setReadOnly(s.readOnly());
+            // acquire time, usage, timeouts and pool gauges under "db.chrona-<pool>." (see Metrics)
+            c.setMetricsTrackerFactory(new HikariMetrics());
+            ds = new HikariDataSource(c);
+            POOLS.put(pool, ds);
         }
 
-        return DS;
+        return ds;
     }
 
-    public static void close() {
-        if (DS != null) {
-            DS.close();
-            DS = null;
-        }
+    /**
+     * Opens a connection outside the pool, for long-lived sessions like LISTEN
+     * that would otherwise hold a pool slot forever. The caller closes it.
+     */
+    public static Connection connect() throws SQLException {
+        Properties p = new Properties();
+        p.setProperty("user", user());
+        p.setProperty("password", password());
+        p.setProperty("ApplicationName", NODE_ID);
+        return DriverManager.getConnection(url(), p);
+    }
+
+    public static String nodeId() {
+        return NODE_ID;
+    }
+
+    public static synchronized void close() {
+        POOLS.values().forEach(HikariDataSource::close);
+        POOLS.clear();
     }
 
     public static void migrate(ClassLoader cl, String... locs) {
+        // own short-lived connection: no pool has to exist (or be sized for DDL) before the migration
         Flyway flyway = Flyway.configure(cl)
-                .dataSource(ds())
+                .dataSource(url(), user(), password())
                 .locations(locs.length == 0 ? new String[]{"classpath:db/migration"} : locs)
                 .baselineOnMigrate(true)
                 .failOnMissingLocations(true)
@@ -43,4 +149,16 @@ public final class Db {
 
         flyway.migrate();
     }
+
+    private static String url() {
+        return Env.get("DB_URL","jdbc:postgresql://localhost:5432/chrona");
+    }
+
+    private static String user() {
+        return Env.get("DB_USER","chrona_app");
+    }
+
+    private static String password() {
+        return Env.get("DB_PASS","hallo123");
+    }
 }
@@ -0,0 +1,346 @@
+package dev.chrona.common.db;
+
+import dev.chrona.common.log.ChronaLog;
+import dev.chrona.common.metrics.Counter;
+import dev.chrona.common.metrics.Metrics;
+import dev.chrona.common.metrics.Timer;
+import org.slf4j.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Group commit for append-only tables (logs, history, analytics).
+ * <p>
+ * Producers {@link #append} records into a bounded queue and return immediately; one writer thread
+ * drains it into batches (up to batchSize records, or whatever arrived within maxDelay of the first
+ * one) and hands each batch to a {@link BatchWriter} in one transaction. One round trip per batch
+ * instead of one connection + INSERT per event.
+ * <p>
+ * A full queue is handled by the {@link Overflow} policy. Failed batches are retried a few times and
+ * then dropped (and counted): these tables are never the source of truth. A batch the database
+ * rejects for its data (SQLState class 22/23, e.g. a foreign key) is not retried but written in
+ * halves, so only the offending records are dropped. {@link #close()} writes everything still queued.
+ * <p>
+ * Metrics under "pipeline.&lt;name&gt;.": appended, dropped, written, failed, batches, batch (write
+ * latency) and queued (gauge).
+ */
+public final class AppendPipeline<T> implements AutoCloseable {
+
+    private static final Logger log = ChronaLog.get(AppendPipeline.class);
+    private static final int MAX_ATTEMPTS = 3;
+
+    /** What {@link #append} does when the queue is full. */
+    public enum Overflow {
+        /** Wait up to blockTimeout for space, then drop the new record. Not for the main thread. */
+        BLOCK,
+        /** Drop the new record. */
+        DROP_NEWEST,
+        /** Drop the oldest queued record to make room. */
+        DROP_OLDEST
+    }
+
+    /** Writes one batch; the connection is in a transaction that the pipeline commits. */
+    @FunctionalInterface
+    public interface BatchWriter<T> {
+        void write(Connection c, List<T> batch) throws SQLException;
+    }
+
+    /**
+     * @param capacity     Max. queued records
+     * @param batchSize    Max. records per batch
+     * @param maxDelay     Max. time a record waits for its batch to fill up
+     * @param overflow     Policy for a full queue
+     * @param blockTimeout Max. wait of {@link Overflow#BLOCK}
+     */
+    public record Settings(int capacity, int batchSize, Duration maxDelay, Overflow overflow, Duration blockTimeout) {
+        public Settings {
+            if (capacity < 1 || batchSize < 1)
+                throw new IllegalArgumentException("capacity and batchSize must be >= 1");
+            Objects.requireNonNull(maxDelay, "maxDelay");
+            Objects.requireNonNull(overflow, "overflow");
+            Objects.requireNonNull(blockTimeout, "blockTimeout");
+        }
+
+        /** 10k queued, batches of 500 or 200 ms, dropping new records when full. */
+        public static Settings defaults() {
+            return new Settings(10_000, 500, Duration.ofMillis(200), Overflow.DROP_NEWEST, Duration.ofMillis(50));
+        }
+    }
+
+    private final String name;
+    private final DataSource ds;
+    private final BatchWriter<T> writer;
+    private final Settings settings;
+    private final BlockingQueue<T> queue;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    // flush(): appended vs. finished (written or given up) records
+    private final AtomicLong accepted = new AtomicLong();
+    private long done;
+    private final ReentrantLock doneLock = new ReentrantLock();
+    private final Condition progress = doneLock.newCondition();
+
+    private final Counter appended;
+    private final Counter dropped;
+    private final Counter written;
+    private final Counter failed;
+    private final Counter batches;
+    private final Timer batchTime;
+
+    /**
+     * Starts the writer thread ("chrona-append-&lt;name&gt;").
+     * @param name     Name for thread, logs and metrics
+     * @param ds       Pool the batches are written with
+     * @param writer   Writes one batch
+     * @param settings Queue and batch settings
+     */
+    public AppendPipeline(String name, DataSource ds, BatchWriter<T> writer, Settings settings) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.ds = Objects.requireNonNull(ds, "dataSource");
+        this.writer = Objects.requireNonNull(writer, "writer");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.queue = new ArrayBlockingQueue<>(settings.capacity());
+
+        String prefix = "pipeline." + name + ".";
+        this.appended = Metrics.counter(prefix + "appended");
+        this.dropped = Metrics.counter(prefix + "dropped");
+        this.written = Metrics.counter(prefix + "written");
+        this.failed = Metrics.counter(prefix + "failed");
+        this.batches = Metrics.counter(prefix + "batches");
+        this.batchTime = Metrics.timer(prefix + "batch");
+        Metrics.gauge(prefix + "queued", queue::size);
+
+        this.thread = Thread.ofPlatform().name("chrona-append-" + name).daemon().start(this::loop);
+    }
+
+    /**
+     * Queues a record for the next batch.
+     * @param record Record to append
+     * @return false if the record was dropped (queue full, or pipeline closed)
+     */
+    public boolean append(T record) {
+        Objects.requireNonNull(record, "record");
+        if (closed) {
+            dropped.increment();
+            return false;
+        }
+
+        boolean queued = switch (settings.overflow()) {
+            case DROP_NEWEST -> queue.offer(record);
+            case DROP_OLDEST -> {
+                while (!queue.offer(record)) {
+                    if (queue.poll() != null) {
+                        dropped.increment();
+                        finished(1);
+                    }
+                }
+                yield true;
+            }
+            case BLOCK -> {
+                try {
+                    yield queue.offer(record, settings.blockTimeout().toNanos(), TimeUnit.NANOSECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    yield false;
+                }
+            }
+        };
+
+        if (!queued) {
+            dropped.increment();
+            return false;
+        }
+        accepted.incrementAndGet();
+        appended.increment();
+        return true;
+    }
+
+    /**
+     * Waits until everything appended before this call is written (or given up).
+     * @param timeout Max. wait
+     * @return false on timeout
+     */
+    public boolean flush(Duration timeout) {
+        long target = accepted.get();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        doneLock.lock();
+        try {
+            while (done < target) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0)
+                    return false;
+                progress.awaitNanos(left);
+            }
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        finally {
+            doneLock.unlock();
+        }
+    }
+
+    /** Stops accepting records and writes what is queued (waits up to 10 s). */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            thread.join(10_000);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty())
+            log.warn("Append pipeline '{}' closed with {} record(s) not written.", name, queue.size());
+        Metrics.removeGauges("pipeline." + name + ".queued");
+    }
+
+    // ---------- Internals ----------
+
+    private void loop() {
+        long windowNanos = settings.maxDelay().toNanos();
+        List<T> batch = new ArrayList<>(settings.batchSize());
+        while (!closed || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+
+                // fill up to batchSize, waiting at most maxDelay after the first record (not while closing)
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < settings.batchSize()) {
+                    queue.drainTo(batch, settings.batchSize() - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= settings.batchSize() || left <= 0 || closed)
+                        break;
+                    T next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+
+                writeWithRetry(batch);
+            }
+            catch (InterruptedException e) {
+                if (closed)
+                    break;
+            }
+            finally {
+                finished(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeWithRetry(List<T> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write(batch);
+                return;
+            }
+            catch (SQLException | RuntimeException e) {
+                if (isDataError(e)) {
+                    // retrying would fail the same way: split the batch down to the bad records
+                    int rejected = isolate(batch);
+                    failed.add(rejected);
+                    log.warn("Append pipeline '{}' dropped {} of {} record(s) rejected by the database: {}",
+                            name, rejected, batch.size(), e.getMessage());
+                    return;
+                }
+                if (attempt >= MAX_ATTEMPTS || closed) {
+                    failed.add(batch.size());
+                    ChronaLog.error(log, e, "Append pipeline '{}' dropped a batch of {} record(s) after {} attempt(s)",
+                            name, batch.size(), attempt);
+                    return;
+                }
+                Thread.sleep(100L << (2 * attempt));
+            }
+        }
+    }
+
+    private void write(List<T> records) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                writer.write(c, records);
+                c.commit();
+            }
+            catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            }
+        }
+        batchTime.stop(start);
+        batches.increment();
+        written.add(records.size());
+    }
+
+    /** Writes the records of a rejected batch in halves; returns how many were dropped. */
+    private int isolate(List<T> records) {
+        if (records.size() == 1)
+            return 1;
+
+        int mid = records.size() >>> 1;
+        return writeOrIsolate(records.subList(0, mid)) + writeOrIsolate(records.subList(mid, records.size()));
+    }
+
+    private int writeOrIsolate(List<T> records) {
+        try {
+            write(records);
+            return 0;
+        }
+        catch (SQLException | RuntimeException e) {
+            if (isDataError(e))
+                return isolate(records);
+            // the database went away in the middle: give up on this part like on any failed batch
+            ChronaLog.error(log, e, "Append pipeline '{}' dropped {} record(s) while isolating a rejected batch",
+                    name, records.size());
+            return records.size();
+        }
+    }
+
+    /** Data/constraint errors (class 22, 23) and failures binding a record won't go away by retrying. */
+    private static boolean isDataError(Exception e) {
+        if (e instanceof RuntimeException)
+            return true;
+        for (SQLException s = (SQLException) e; s != null; s = s.getNextException()) {
+            String state = s.getSQLState();
+            if (state != null && (state.startsWith("22") || state.startsWith("23")))
+                return true;
+        }
+        return false;
+    }
+
+    private void finished(int records) {
+        if (records == 0)
+            return;
+        doneLock.lock();
+        try {
+            done += records;
+            progress.signalAll();
+        }
+        finally {
+            doneLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package dev.chrona.common.db;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * {@link AppendPipeline.BatchWriter} that streams a batch with COPY ... FROM STDIN (text format) through
+ * pgjdbc's CopyManager. One statement per batch regardless of its size, no bind parameters, and the
+ * server skips per-row INSERT planning; the fastest way into an append-only table.
+ */
+public final class CopyWriter<T> implements AppendPipeline.BatchWriter<T> {
+
+    /** Bytes buffered before they are handed to the COPY stream. */
+    private static final int CHUNK = 64 * 1024;
+
+    /** Encodes one record as one row; fields in the order of the column list. */
+    @FunctionalInterface
+    public interface RowEncoder<T> {
+        void encode(Row row, T record);
+    }
+
+    private final String sql;
+    private final RowEncoder<T> encoder;
+
+    /**
+     * @param table   Target table
+     * @param columns Column list, e.g. "player_id, action, created_at"
+     * @param encoder Writes the fields of one record
+     */
+    public CopyWriter(String table, String columns, RowEncoder<T> encoder) {
+        this.sql = "copy " + table + " (" + columns + ") from stdin";
+        this.encoder = Objects.requireNonNull(encoder, "encoder");
+    }
+
+    @Override
+    public void write(Connection c, List<T> batch) throws SQLException {
+        CopyIn copy = c.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+        try {
+            Row row = new Row();
+            for (T record : batch) {
+                encoder.encode(row, record);
+                row.end();
+                if (row.buf.length() >= CHUNK)
+                    row.flushTo(copy);
+            }
+            row.flushTo(copy);
+            copy.endCopy();
+        }
+        finally {
+            if (copy.isActive())
+                copy.cancelCopy();
+        }
+    }
+
+    /** Field writer for the COPY text format: tab separated, \N for null, backslash escapes. */
+    public static final class Row {
+        private final StringBuilder buf = new StringBuilder(CHUNK + 1024);
+        private boolean first = true;
+
+        private Row() {}
+
+        public Row add(String value) {
+            if (value == null)
+                return addNull();
+            separator();
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                switch (ch) {
+                    case '\\' -> buf.append("\\\\");
+                    case '\t' -> buf.append("\\t");
+                    case '\n' -> buf.append("\\n");
+                    case '\r' -> buf.append("\\r");
+                    default -> buf.append(ch);
+                }
+            }
+            return this;
+        }
+
+        public Row add(long value) {
+            separator();
+            buf.append(value);
+            return this;
+        }
+
+        public Row add(boolean value) {
+            separator();
+            buf.append(value ? 't' : 'f');
+            return this;
+        }
+
+        public Row add(UUID value) {
+            if (value == null)
+                return addNull();
+            separator();
+            buf.append(value);
+            return this;
+        }
+
+        /** ISO-8601 in UTC, for timestamptz columns. */
+        public Row add(Instant value) {
+            if (value == null)
+                return addNull();
+            separator();
+            buf.append(value);
+            return this;
+        }
+
+        public Row addNull() {
+            separator();
+            buf.append("\\N");
+            return this;
+        }
+
+        private void separator() {
+            if (!first)
+                buf.append('\t');
+            first = false;
+        }
+
+        private void end() {
+            buf.append('\n');
+            first = true;
+        }
+
+        private void flushTo(CopyIn copy) throws SQLException {
+            if (buf.isEmpty())
+                return;
+            byte[] bytes = buf.toString().getBytes(StandardCharsets.UTF_8);
+            copy.writeToCopy(bytes, 0, bytes.length);
+            buf.setLength(0);
+        }
+    }
+}
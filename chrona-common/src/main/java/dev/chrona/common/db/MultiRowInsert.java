@@ -0,0 +1,69 @@
+package dev.chrona.common.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@link AppendPipeline.BatchWriter} that writes a batch as multi-row INSERTs
+ * ("insert into t (a, b) values (?, ?), (?, ?), ..."), chunked below pgjdbc's bind parameter limit.
+ */
+public final class MultiRowInsert<T> implements AppendPipeline.BatchWriter<T> {
+
+    /** pgjdbc allows 32767 bind parameters per statement. */
+    private static final int MAX_PARAMS = 32_767;
+    private static final int MAX_ROWS = 1000;
+
+    /** Binds one row; the row's parameters start at index first. */
+    @FunctionalInterface
+    public interface RowBinder<T> {
+        void bind(PreparedStatement ps, int first, T row) throws SQLException;
+    }
+
+    private final String prefix;
+    private final String rowTemplate;
+    private final int paramsPerRow;
+    private final int rowsPerStatement;
+    private final RowBinder<T> binder;
+
+    /**
+     * @param table       Target table
+     * @param columns     Column list, e.g. "player_id, action, extra"
+     * @param rowTemplate Placeholders of one row incl. casts, e.g. "(?, ?, ?::jsonb)"
+     * @param binder      Binds one row
+     */
+    public MultiRowInsert(String table, String columns, String rowTemplate, RowBinder<T> binder) {
+        this.prefix = "insert into " + table + " (" + columns + ") values ";
+        this.rowTemplate = Objects.requireNonNull(rowTemplate, "rowTemplate");
+        this.paramsPerRow = (int) rowTemplate.chars().filter(ch -> ch == '?').count();
+        if (paramsPerRow == 0)
+            throw new IllegalArgumentException("rowTemplate has no parameters");
+        this.rowsPerStatement = Math.min(MAX_ROWS, MAX_PARAMS / paramsPerRow);
+        this.binder = Objects.requireNonNull(binder, "binder");
+    }
+
+    @Override
+    public void write(Connection c, List<T> batch) throws SQLException {
+        for (int from = 0; from < batch.size(); from += rowsPerStatement) {
+            List<T> chunk = batch.subList(from, Math.min(batch.size(), from + rowsPerStatement));
+            try (PreparedStatement ps = c.prepareStatement(sql(chunk.size()))) {
+                int i = 1;
+                for (T row : chunk) {
+                    binder.bind(ps, i, row);
+                    i += paramsPerRow;
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private String sql(int rows) {
+        StringBuilder sql = new StringBuilder(prefix.length() + rows * (rowTemplate.length() + 2));
+        sql.append(prefix);
+        for (int i = 0; i < rows; i++)
+            sql.append(i == 0 ? "" : ", ").append(rowTemplate);
+        return sql.toString();
+    }
+}
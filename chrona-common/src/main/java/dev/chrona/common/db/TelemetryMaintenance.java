@@ -0,0 +1,134 @@
+package dev.chrona.common.db;
+
+import dev.chrona.common.log.ChronaLog;
+import org.slf4j.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Periodic upkeep of the partitioned telemetry tables (see V13__telemetry_partitions.sql).
+ * <p>
+ * - creates partitions ahead of time for every table registered in telemetry_table (look-ahead by
+ *   granularity: a week of daily partitions is a few days, a week of monthly ones would be months)
+ * - for tables with a configured retention: rolls expired partitions up into their *_daily
+ *   table, then drops them (or only detaches them, to archive them outside the database)
+ * <p>
+ * Each table is handled in its own transaction; a failure on one does not stop the others.
+ * Meant to run off the main thread, e.g. as an async repeating task.
+ */
+public final class TelemetryMaintenance implements Runnable {
+
+    private static final Logger log = ChronaLog.get(TelemetryMaintenance.class);
+
+    /**
+     * Retention of one table.
+     * @param keep    Partitions ending before now() - keep are removed
+     * @param archive true = detach only (table stays for export), false = drop
+     */
+    public record Retention(Duration keep, boolean archive) {
+        public Retention {
+            Objects.requireNonNull(keep, "keep");
+            if (keep.isNegative() || keep.isZero())
+                throw new IllegalArgumentException("keep must be > 0");
+        }
+    }
+
+    private final DataSource ds;
+    private final int daysAhead;
+    private final int monthsAhead;
+    private final Map<String, Retention> retention;
+
+    /**
+     * @param ds              Telemetry data source
+     * @param daysAhead   How many future partitions tables partitioned by day should have
+     * @param monthsAhead How many future partitions tables partitioned by month should have
+     * @param retention   Retention by table name; tables without an entry are kept forever
+     */
+    public TelemetryMaintenance(DataSource ds, int daysAhead, int monthsAhead, Map<String, Retention> retention) {
+        this.ds = Objects.requireNonNull(ds, "dataSource");
+        this.daysAhead = Math.max(1, daysAhead);
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.retention = Map.copyOf(retention);
+    }
+
+    @Override
+    public void run() {
+        List<String> tables;
+        try {
+            tables = tables();
+        }
+        catch (SQLException e) {
+            ChronaLog.error(log, e, "Telemetry maintenance failed");
+            return;
+        }
+
+        for (String table : tables) {
+            try {
+                int created = ensurePartitions(table);
+                if (created > 0)
+                    log.info("Created {} {} partition(s).", created, table);
+
+                Retention r = retention.get(table);
+                if (r == null)
+                    continue;
+                int expired = expirePartitions(table, r);
+                if (expired > 0)
+                    log.info("{} {} partition(s) of {} after rollup.", r.archive() ? "Detached" : "Dropped", expired, table);
+            }
+            catch (SQLException e) {
+                ChronaLog.error(log, e, "Telemetry maintenance of {} failed", table);
+            }
+        }
+    }
+
+    /** Tables registered for partition management (the ones present in this database). */
+    public List<String> tables() throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "select table_name from telemetry_table where to_regclass(table_name) is not null order by table_name");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next())
+                tables.add(rs.getString(1));
+        }
+        return tables;
+    }
+
+    /** Creates missing partitions for now and the next ones; returns how many were created. */
+    public int ensurePartitions(String table) throws SQLException {
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "select telemetry_ensure_partitions(table_name, case granularity when 'day' then ? else ? end) " +
+                             "from telemetry_table where table_name = ?")) {
+            ps.setInt(1, daysAhead);
+            ps.setInt(2, monthsAhead);
+            ps.setString(3, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /** Rolls up and drops/detaches expired partitions; returns how many were removed. */
+    public int expirePartitions(String table, Retention r) throws SQLException {
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement("select telemetry_expire_partitions(?, ?::interval, ?)")) {
+            ps.setString(1, table);
+            ps.setString(2, r.keep().toSeconds() + " seconds");
+            ps.setBoolean(3, r.archive());
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
@@ -56,6 +56,11 @@ public final class DialogueService {
         npcBindings.reload();
     }
 
+    /** Writes pending flag history; call on disable. */
+    public void close() {
+        flagStore.close();
+    }
+
     /** Handles player interaction with an NPC. */
     public void handleNpcInteract(Player player, NpcHandle npc) {
         // if player already in dialogue: ignore / oder später "continue"
@@ -4,6 +4,8 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import dev.chrona.common.Db;
+import dev.chrona.common.db.AppendPipeline;
+import dev.chrona.common.db.MultiRowInsert;
 import dev.chrona.common.log.ChronaLog;
 import org.slf4j.Logger;
 
@@ -19,7 +21,8 @@ import java.util.*;
  * DB-based Store for player-flags with history-logging.
  *
  * - Active flags in table "player_flag"
- * - Every update of the flags gets written into the "player_flag_log" table.
+ * - Every update of the flags gets written into the "player_flag_log" table
+ *   (batched through an {@link AppendPipeline} on the telemetry pool, after the flag change itself).
  *
  * API:
  *   - hasFlag(UUID, String)
@@ -27,7 +30,7 @@ import java.util.*;
  *   - setFlag(UUID, String, boolean, FlagMetadata)
  *   - getFlags(UUID)
  */
-public final class PlayerFlagStore {
+public final class PlayerFlagStore implements AutoCloseable {
 
     private static final String TABLE_FLAGS = "player_flag";
     private static final String TABLE_FLAGS_LOG = "player_flag_log";
@@ -36,10 +39,31 @@ public final class PlayerFlagStore {
     private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
     private final Path legacyFile;
     private final DataSource ds;
+    private final AppendPipeline<LogEntry> history;
+
+    private record LogEntry(UUID playerId, String key, boolean value, String action, String source, String extra,
+                            Instant at) {}
 
     public PlayerFlagStore(Path baseDir) {
         this.legacyFile = baseDir.resolve("player_flags.json");
-        this.ds = Db.ds();
+        this.ds = Db.ds(Db.Pool.GAMEPLAY);
+        this.history = new AppendPipeline<>("flag_log", Db.ds(Db.Pool.TELEMETRY),
+                new MultiRowInsert<LogEntry>(TABLE_FLAGS_LOG,
+                        "player_id, flag_key, value, action, source, extra, created_at",
+                        "(?, ?, ?, ?, ?, ?::jsonb, ?)",
+                        (ps, i, e) -> {
+                            ps.setObject(i, e.playerId());
+                            ps.setString(i + 1, e.key());
+                            ps.setBoolean(i + 2, e.value());
+                            ps.setString(i + 3, e.action());
+                            ps.setString(i + 4, e.source());
+                            if (e.extra() != null)
+                                ps.setString(i + 5, e.extra());
+                            else
+                                ps.setNull(i + 5, Types.VARCHAR);
+                            ps.setTimestamp(i + 6, Timestamp.from(e.at()));
+                        }),
+                AppendPipeline.Settings.defaults());
 
         // Flyway sollte V3__player_flags.sql bereits ausgeführt haben.
         migrateLegacyIfNeeded();
@@ -200,14 +224,13 @@ public final class PlayerFlagStore {
 
             if (value) {
                 upsertFlag(conn, playerId, key, metadata);
-                insertLog(conn, playerId, key, true, "SET", metadata);
             }
             else {
                 deleteFlag(conn, playerId, key);
-                insertLog(conn, playerId, key, false, "UNSET", metadata);
             }
 
             conn.commit();
+            logChange(playerId, key, value, value ? "SET" : "UNSET", metadata);
         }
         catch (SQLException e) {
             log.error("Error inserting/removing flag '{}' for player {}: {}",
@@ -278,33 +301,20 @@ public final class PlayerFlagStore {
         }
     }
 
-    /** Inserts a log entry into player_flag_log. */
-    private void insertLog(Connection conn, UUID playerId, String key,
-                           boolean value, String action, FlagMetadata metadata) throws SQLException {
-
-        String sql = "INSERT INTO " + TABLE_FLAGS_LOG +
-                " (player_id, flag_key, value, action, source, extra, created_at) " +
-                "VALUES (?, ?, ?, ?, ?, ?::jsonb, now())";
+    /** Queues the history row; written in batches by the pipeline. */
+    private void logChange(UUID playerId, String key, boolean value, String action, FlagMetadata metadata) {
+        String source = metadata != null ? metadata.getSource() : null;
+        String extraJson = metadata != null && !metadata.getExtra().isEmpty()
+                ? gson.toJson(metadata.getExtra())
+                : null;
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setObject(1, playerId);
-            ps.setString(2, key);
-            ps.setBoolean(3, value);
-            ps.setString(4, action);
-
-            String source = metadata != null ? metadata.getSource() : null;
-            String extraJson = metadata != null && !metadata.getExtra().isEmpty()
-                    ? gson.toJson(metadata.getExtra())
-                    : null;
-
-            ps.setString(5, source);
-
-            if (extraJson != null)
-                ps.setString(6, extraJson);
-            else
-                ps.setNull(6, Types.VARCHAR);
+        if (!history.append(new LogEntry(playerId, key, value, action, source, extraJson, Instant.now())))
+            log.warn("logChange({}, {}) dropped: history queue full", playerId, key);
+    }
 
-            ps.executeUpdate();
-        }
+    /** Writes pending history rows (call on disable). */
+    @Override
+    public void close() {
+        history.close();
     }
 }
@@ -0,0 +1,23 @@
+package dev.chrona.common.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Monotonic event counter (failures, retries, timeouts, ...). */
+public final class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    Counter() {}
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long n) {
+        value.add(n);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,51 @@
+package dev.chrona.common.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds Hikari pool metrics into {@link Metrics}, under "db.&lt;pool name&gt;.":
+ * acquire (wait for a connection), usage (time a connection was borrowed), timeouts,
+ * and the gauges active, idle, total and pending (threads waiting for a connection).
+ */
+public final class HikariMetrics implements MetricsTrackerFactory {
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats stats) {
+        String prefix = "db." + poolName + ".";
+        Metrics.gauge(prefix + "active", stats::getActiveConnections);
+        Metrics.gauge(prefix + "idle", stats::getIdleConnections);
+        Metrics.gauge(prefix + "total", stats::getTotalConnections);
+        Metrics.gauge(prefix + "pending", stats::getPendingThreads);
+        Metrics.gauge(prefix + "max", stats::getMaxConnections);
+
+        Timer acquire = Metrics.timer(prefix + "acquire");
+        Timer usage = Metrics.timer(prefix + "usage");
+        Counter timeouts = Metrics.counter(prefix + "timeouts");
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+
+            @Override
+            public void close() {
+                Metrics.removeGauges(prefix);
+            }
+        };
+    }
+}
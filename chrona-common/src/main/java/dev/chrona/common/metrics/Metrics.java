@@ -0,0 +1,72 @@
+package dev.chrona.common.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process metrics registry: timers, counters and gauges by dotted name ("econ.pay", "db.chrona.active").
+ * <p>
+ * Meters are created on first use and live as long as the process; instrumented classes keep them
+ * in static fields. Nothing is exported, {@link #report(String)} renders the current values
+ * (e.g. for /econ metrics).
+ */
+public final class Metrics {
+    private Metrics() {}
+
+    private static final ConcurrentMap<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, k -> new Timer());
+    }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, k -> new Counter());
+    }
+
+    /** Registers (or replaces) a gauge; the supplier is called on every report. */
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    /** Removes all gauges whose name starts with the prefix (e.g. of a closed pool). */
+    public static void removeGauges(String prefix) {
+        GAUGES.keySet().removeIf(name -> name.startsWith(prefix));
+    }
+
+    /**
+     * Renders all meters whose name starts with the prefix, one line each, sorted by name.
+     * Timers: count, mean, p50, p99, max in milliseconds. Counters and gauges: their value.
+     * @param prefix Name prefix, "" for everything
+     * @return Report lines
+     */
+    public static List<String> report(String prefix) {
+        Map<String, String> lines = new TreeMap<>();
+        TIMERS.forEach((name, t) -> {
+            if (!name.startsWith(prefix) || t.count() == 0)
+                return;
+            lines.put(name, String.format("%s n=%d mean=%s p50=%s p99=%s max=%s ms", name, t.count(),
+                    millis(t.totalNanos() / t.count()), millis(t.percentile(0.5)),
+                    millis(t.percentile(0.99)), millis(t.maxNanos())));
+        });
+        COUNTERS.forEach((name, c) -> {
+            if (name.startsWith(prefix) && c.get() != 0)
+                lines.put(name, name + " " + c.get());
+        });
+        GAUGES.forEach((name, g) -> {
+            if (name.startsWith(prefix))
+                lines.put(name, name + " " + g.getAsLong());
+        });
+        return new ArrayList<>(lines.values());
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,96 @@
+package dev.chrona.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram in nanoseconds.
+ * <p>
+ * Log-linear buckets: every power of two is split into four sub-buckets, so a percentile is exact
+ * to within 25 % over the whole range of long. Recording is lock-free and allocation-free.
+ */
+public final class Timer {
+
+    private static final int SUB_BITS = 2;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB + (63 - SUB_BITS) * SUB;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    Timer() {}
+
+    /** Records the time since startNanos (a value of System.nanoTime()). */
+    public void stop(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        buckets.incrementAndGet(bucket(nanos));
+        count.increment();
+        total.add(nanos);
+        if (nanos > max.get())
+            max.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long totalNanos() {
+        return total.sum();
+    }
+
+    public long maxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Upper bound of the bucket that holds the given quantile.
+     * @param q Quantile, 0..1 (0.99 = p99)
+     * @return Latency in nanoseconds, 0 if nothing was recorded
+     */
+    public long percentile(double q) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(Math.min(1.0, Math.max(0.0, q)) * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= Math.max(1, rank))
+                return Math.min(upperBound(i), maxNanos());
+        }
+        return maxNanos();
+    }
+
+    // ---------- Internals ----------
+
+    private static int bucket(long v) {
+        if (v < SUB)
+            return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB - 1);
+        return SUB + (exp - SUB_BITS) * SUB + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB)
+            return bucket;
+        int exp = (bucket - SUB) / SUB + SUB_BITS;
+        long sub = (bucket - SUB) % SUB;
+        long upper = ((SUB + sub + 1) << (exp - SUB_BITS)) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -35,6 +35,13 @@ public final class RegionApi {
         return INSTANCE.getRegionsAt(loc);
     }
 
+    /** Gets the region with the highest priority at the given location. */
+    public static Optional<Region> getTopRegionAt(Location loc) {
+        if (INSTANCE == null)
+            return Optional.empty();
+        return INSTANCE.getTopRegionAt(loc);
+    }
+
     /** Checks if the player is in the region with the given ID. */
     public static boolean isInRegion(Player player, String regionId) {
         if (INSTANCE == null)
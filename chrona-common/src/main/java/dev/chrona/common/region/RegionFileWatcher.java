@@ -0,0 +1,108 @@
+package dev.chrona.common.region;
+
+import dev.chrona.common.log.ChronaLog;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches regions.yml and hands a freshly parsed region set to {@link RegionService#reload} when the
+ * file changes. Parsing, indexing and diffing all happen on the watcher thread.
+ * <p>
+ * Editors often write a file in several steps (truncate, write, rename), so events are collected
+ * until the file has been quiet for the debounce time. A file that parses to no regions at all while
+ * regions are loaded is treated as broken/half-written and ignored.
+ */
+public final class RegionFileWatcher implements AutoCloseable {
+
+    private static final Logger log = ChronaLog.get(RegionFileWatcher.class);
+
+    private final File file;
+    private final RegionService service;
+    private final long debounceMillis;
+    private final WatchService watcher;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public RegionFileWatcher(File file, RegionService service, Duration debounce) throws IOException {
+        this.file = Objects.requireNonNull(file, "file").getAbsoluteFile();
+        this.service = Objects.requireNonNull(service, "service");
+        this.debounceMillis = Math.max(0L, debounce.toMillis());
+        this.watcher = FileSystems.getDefault().newWatchService();
+        this.file.getParentFile().toPath().register(watcher,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = Thread.ofPlatform().name("chrona-regions-watch").daemon().start(this::loop);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            watcher.close();   // wakes up take()
+            thread.join(1000);
+        }
+        catch (IOException e) {
+            log.warn("Couldnt close region file watcher: {}", e.getMessage());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------- Internals ----------
+
+    private void loop() {
+        while (running) {
+            try {
+                WatchKey key = watcher.take();
+                boolean touched = drain(key);
+
+                // debounce: wait until no more events for our file arrive
+                while (touched) {
+                    WatchKey more = watcher.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                    if (more == null)
+                        break;
+                    drain(more);
+                }
+
+                if (touched)
+                    reload();
+            }
+            catch (ClosedWatchServiceException | InterruptedException e) {
+                break;
+            }
+            catch (RuntimeException e) {
+                ChronaLog.error(log, e, "Region hot reload failed");
+            }
+        }
+    }
+
+    /** Consumes the key's events; true if one of them was our file. */
+    private boolean drain(WatchKey key) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path p && p.getFileName().toString().equals(file.getName()))
+                touched = true;
+        }
+        key.reset();
+        return touched;
+    }
+
+    private void reload() {
+        if (!file.exists())
+            return;
+
+        List<Region> regions = RegionConfigLoader.loadFromFile(file);
+        if (regions.isEmpty() && service.regionCount() > 0) {
+            log.warn("{} changed but contains no regions – ignored (half-written or broken?).", file.getName());
+            return;
+        }
+        service.reload(regions);
+    }
+}
@@ -0,0 +1,109 @@
+package dev.chrona.common.region;
+
+import java.util.List;
+
+/**
+ * Packed form of a {@link Region}'s shape, compiled once when the regions are loaded.
+ * <p>
+ * - AABB (XZ) and Y bounds as primitives, checked before anything else
+ * - axis-aligned RECT regions are a plain box test
+ * - polygons keep one packed {@code double[]} with z0, z1, x0 and the inverse slope per edge,
+ *   so the ray cast neither touches {@link RegionPoint} objects nor divides
+ * <p>
+ * The world is not part of the test: the index is per world, so the world is resolved once per lookup.
+ * Same result as {@link Region#contains} (half-open on the max edges of a box); points exactly on a
+ * slanted edge may round differently.
+ */
+final class RegionGeometry {
+
+    /** Doubles per edge in {@link #edges}. */
+    private static final int STRIDE = 4;
+
+    final Region region;
+    /** Dense id within its {@link RegionIndex}. */
+    final int ordinal;
+    final double minX, minZ, maxX, maxZ;
+    final int minY, maxY;
+    private final boolean box;
+    private final double[] edges;
+
+    private RegionGeometry(Region region, int ordinal, double minX, double minZ, double maxX, double maxZ,
+                           boolean box, double[] edges) {
+        this.region = region;
+        this.ordinal = ordinal;
+        this.minX = minX;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxZ = maxZ;
+        this.minY = region.minY();
+        this.maxY = region.maxY();
+        this.box = box;
+        this.edges = edges;
+    }
+
+    static RegionGeometry compile(Region region, int ordinal) {
+        List<RegionPoint> pts = region.polygon();
+        int n = pts.size();
+        double minX = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        double[] xs = new double[n], zs = new double[n];
+        for (int i = 0; i < n; i++) {
+            RegionPoint p = pts.get(i);
+            xs[i] = p.x();
+            zs[i] = p.z();
+            minX = Math.min(minX, xs[i]);
+            minZ = Math.min(minZ, zs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxZ = Math.max(maxZ, zs[i]);
+        }
+
+        if (region.type() == RegionType.RECT && isAxisAlignedBox(xs, zs, minX, minZ, maxX, maxZ))
+            return new RegionGeometry(region, ordinal, minX, minZ, maxX, maxZ, true, null);
+
+        // same edge order as Region#pointInPolygon: i, j = i - 1
+        double[] edges = new double[n * STRIDE];
+        for (int i = 0, j = n - 1, o = 0; i < n; j = i++, o += STRIDE) {
+            edges[o] = zs[i];
+            edges[o + 1] = zs[j];
+            edges[o + 2] = xs[i];
+            // horizontal edges never pass the straddle check, their slope is never read
+            edges[o + 3] = zs[j] != zs[i] ? (xs[j] - xs[i]) / (zs[j] - zs[i]) : 0.0;
+        }
+        return new RegionGeometry(region, ordinal, minX, minZ, maxX, maxZ, false, edges);
+    }
+
+    /** Checks the point (block Y, exact X/Z) against this region; allocates nothing. */
+    boolean contains(double x, int y, double z) {
+        if (y < minY | y > maxY)
+            return false;
+        if (box)
+            return x >= minX & x < maxX & z >= minZ & z < maxZ;
+        if (x < minX | x > maxX | z < minZ | z > maxZ)
+            return false;
+
+        boolean inside = false;
+        double[] e = edges;
+        for (int o = 0; o < e.length; o += STRIDE) {
+            double zi = e[o];
+            if ((zi > z) != (e[o + 1] > z) && x < e[o + 3] * (z - zi) + e[o + 2])
+                inside = !inside;
+        }
+        return inside;
+    }
+
+    /** True for the 4 corner points a RECT is loaded as (any order). */
+    private static boolean isAxisAlignedBox(double[] xs, double[] zs, double minX, double minZ, double maxX, double maxZ) {
+        if (xs.length != 4)
+            return false;
+        int corners = 0;
+        for (int i = 0; i < 4; i++) {
+            int j = (i + 1) & 3;
+            boolean cornerOk = (xs[i] == minX || xs[i] == maxX) && (zs[i] == minZ || zs[i] == maxZ);
+            boolean edgeOk = xs[i] == xs[j] ^ zs[i] == zs[j];
+            if (!cornerOk || !edgeOk)
+                return false;
+            corners |= 1 << ((xs[i] == maxX ? 1 : 0) | (zs[i] == maxZ ? 2 : 0));
+        }
+        return corners == 0xF;
+    }
+}
@@ -0,0 +1,147 @@
+package dev.chrona.common.region;
+
+import java.util.*;
+
+/**
+ * Immutable spatial index over all loaded regions, built once per {@link RegionService#setRegions}.
+ * <p>
+ * Per world a {@link RegionTree} (3D BVH over the region boxes incl. minY/maxY) finds the regions at
+ * a point without testing every region of the world; stacked regions (district, building, floor,
+ * room) are separated by their Y bounds as well. Regions are held in their compiled
+ * {@link RegionGeometry} form.
+ * <p>
+ * Every region gets a dense ordinal (0..size-1) in priority order, used as bit index for the
+ * per-player membership in {@link RegionService} and for direct array lookups.
+ */
+final class RegionIndex {
+
+    static final RegionIndex EMPTY = new RegionIndex(Map.of(), Map.of(), new RegionGeometry[0]);
+
+    private static final Comparator<Region> BY_PRIORITY = Comparator.comparingInt(Region::priority).reversed();
+
+    private final Map<String, RegionTree> worlds;
+    private final Map<String, RegionGeometry> byId;
+    private final RegionGeometry[] byOrdinal;
+
+    private RegionIndex(Map<String, RegionTree> worlds, Map<String, RegionGeometry> byId, RegionGeometry[] byOrdinal) {
+        this.worlds = worlds;
+        this.byId = byId;
+        this.byOrdinal = byOrdinal;
+    }
+
+    static RegionIndex build(Collection<Region> regions) {
+        if (regions.isEmpty())
+            return EMPTY;
+
+        // ordinals in priority order, so ascending bits = the order getRegionsAt returns
+        List<Region> sorted = new ArrayList<>(regions);
+        sorted.sort(BY_PRIORITY);
+
+        RegionGeometry[] byOrdinal = new RegionGeometry[sorted.size()];
+        Map<String, List<RegionGeometry>> perWorld = new HashMap<>();
+        Map<String, RegionGeometry> byId = new HashMap<>();
+        for (int i = 0; i < byOrdinal.length; i++) {
+            RegionGeometry g = byOrdinal[i] = RegionGeometry.compile(sorted.get(i), i);
+            perWorld.computeIfAbsent(g.region.worldName(), w -> new ArrayList<>()).add(g);
+            byId.putIfAbsent(key(g.region.id()), g);
+        }
+
+        Map<String, RegionTree> worlds = new HashMap<>();
+        for (var e : perWorld.entrySet())
+            worlds.put(e.getKey(), RegionTree.build(e.getValue()));
+        return new RegionIndex(worlds, byId, byOrdinal);
+    }
+
+    /**
+     * Regions that differ between two snapshots (by id), with the bounds of both the old and the new
+     * version: only players inside one of these bounds can have a different region set afterwards.
+     */
+    record Diff(int added, int removed, int changed, List<RegionGeometry> bounds) {
+
+        boolean isEmpty() {
+            return bounds.isEmpty();
+        }
+
+        /** Whether the point (block Y, exact X/Z) lies in the bounds of a changed region. */
+        boolean affects(String world, double x, int y, double z) {
+            for (RegionGeometry g : bounds) {
+                if (y >= g.minY && y <= g.maxY && x >= g.minX && x <= g.maxX && z >= g.minZ && z <= g.maxZ
+                        && g.region.worldName().equals(world))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    static Diff diff(RegionIndex before, RegionIndex after) {
+        List<RegionGeometry> bounds = new ArrayList<>();
+        int added = 0, removed = 0, changed = 0;
+        for (RegionGeometry old : before.byOrdinal) {
+            RegionGeometry now = after.byId.get(key(old.region.id()));
+            if (now == null) {
+                removed++;
+                bounds.add(old);
+            }
+            else if (!now.region.equals(old.region)) {
+                changed++;
+                bounds.add(old);
+                bounds.add(now);
+            }
+        }
+        for (RegionGeometry now : after.byOrdinal) {
+            if (!before.byId.containsKey(key(now.region.id()))) {
+                added++;
+                bounds.add(now);
+            }
+        }
+        return new Diff(added, removed, changed, bounds);
+    }
+
+    /**
+     * Sets the ordinal bit of every region containing the point (block Y, exact X/Z) in bits
+     * ({@link #words()} long); returns false if there is none. Ascending bits = priority order.
+     */
+    boolean collect(String world, double x, int y, double z, long[] bits) {
+        RegionTree tree = worlds.get(world);
+        return tree != null && tree.collect(x, y, z, bits);
+    }
+
+    /** The containing region with the highest priority, or null. */
+    Region top(String world, double x, int y, double z) {
+        RegionTree tree = worlds.get(world);
+        RegionGeometry g = tree != null ? tree.top(x, y, z) : null;
+        return g != null ? g.region : null;
+    }
+
+    Region byId(String id) {
+        RegionGeometry g = id != null ? byId.get(key(id)) : null;
+        return g != null ? g.region : null;
+    }
+
+    /** Ordinal of the region with the given id, or -1. */
+    int ordinal(String id) {
+        RegionGeometry g = id != null ? byId.get(key(id)) : null;
+        return g != null ? g.ordinal : -1;
+    }
+
+    Region region(int ordinal) {
+        return byOrdinal[ordinal].region;
+    }
+
+    int size() {
+        return byOrdinal.length;
+    }
+
+    /** Length of a membership bitset over all ordinals. */
+    int words() {
+        return (byOrdinal.length + 63) >>> 6;
+    }
+
+    int worldCount() {
+        return worlds.size();
+    }
+
+    private static String key(String id) {
+        return id.toLowerCase(Locale.ROOT);
+    }
+}
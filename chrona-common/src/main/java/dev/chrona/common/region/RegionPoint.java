@@ -19,4 +19,14 @@ public final class RegionPoint {
     public double z() {
         return z;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RegionPoint p && Double.compare(x, p.x) == 0 && Double.compare(z, p.z) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(x) + Double.hashCode(z);
+    }
 }
@@ -1,13 +1,19 @@
 package dev.chrona.common.region;
 
 import dev.chrona.common.log.ChronaLog;
+import dev.chrona.common.metrics.Counter;
+import dev.chrona.common.metrics.Metrics;
+import dev.chrona.common.metrics.Timer;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.*;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
 import org.slf4j.Logger;
 
 import java.util.*;
@@ -17,86 +23,195 @@ import java.util.concurrent.ConcurrentHashMap;
  * Central Region-Management.:
  * - Saves Regions loaded by Loader.
  * - Offers getters (getRegionsAt, isInRegion, getRegionById)
- * - Fires enter/leave events.
+ * - Hot reload: new regions are indexed and diffed off the main thread, then swapped in; only players
+ *   inside the bounds of changed regions are recalculated.
+ * - Fires enter/leave events, either directly on every block step or, with a tracking budget,
+ *   from a per-tick task that works off dirty players within the budget.
  */
 public final class RegionService implements Listener {
 
     private final Logger log = ChronaLog.get(RegionService.class);
     private final Plugin plugin;
 
-    // worldName -> Regions in dieser Welt
-    private final Map<String, List<Region>> regionsByWorld = new HashMap<>();
+    // Unveränderlicher Snapshot (worldName -> BVH, id/ordinal -> Region); wird bei setRegions/reload atomar ersetzt
+    private volatile RegionIndex index = RegionIndex.EMPTY;
+    private final Timer reloadTimer = Metrics.timer("regions.reload");
 
-    // Player -> aktuelle Regions (für Enter/Leave-Erkennung)
-    private final Map<UUID, Set<String>> playerRegions = new ConcurrentHashMap<>();
+    // Player -> aktuelle Regions als Bitset über die Ordinals des Index (für Enter/Leave-Erkennung)
+    private final Map<UUID, Membership> playerRegions = new ConcurrentHashMap<>();
+
+    // Budgeted tracking: bewegte Spieler, pro Tick innerhalb des Budgets abgearbeitet (nur Main-Thread)
+    private final ArrayDeque<Player> dirty = new ArrayDeque<>();
+    private final Timer tickTimer = Metrics.timer("regions.tracking.tick");
+    private final Counter deferredCounter = Metrics.counter("regions.tracking.deferred");
+    private BukkitTask trackingTask;
+    private long trackingBudgetNanos;
 
     public RegionService(Plugin plugin) {
         this.plugin = Objects.requireNonNull(plugin, "plugin");
     }
 
     /**
-     * gets called by Loader to set all Regions.
+     * gets called by Loader to set all Regions. Main thread; builds and swaps in one go.
      */
     public synchronized void setRegions(Collection<Region> regions) {
-        regionsByWorld.clear();
-        for (Region region : regions) {
-            regionsByWorld
-                    .computeIfAbsent(region.worldName(), w -> new ArrayList<>())
-                    .add(region);
+        // builds the per-world BVH (STR bulk load); ordinals follow priority descending
+        RegionIndex next = RegionIndex.build(regions);
+        swap(next, RegionIndex.diff(index, next));
+    }
+
+    /**
+     * Hot reload from any thread (e.g. the file watcher): indexes the new regions and diffs them
+     * against the current snapshot on the calling thread. The swap then
+     * happens on the main thread, where only players inside the bounds of added, removed or changed
+     * regions are recalculated (silently, like {@link #setRegions}).
+     */
+    public void reload(Collection<Region> regions) {
+        long start = System.nanoTime();
+        RegionIndex base = index;
+        RegionIndex next = RegionIndex.build(regions);
+        RegionIndex.Diff diff = RegionIndex.diff(base, next);
+        reloadTimer.stop(start);
+
+        if (diff.isEmpty()) {
+            log.info("Regionen neu eingelesen: keine Änderungen.");
+            return;
         }
 
-        // sort regions by priority descending
-        for (List<Region> list : regionsByWorld.values())
-            list.sort(Comparator.comparingInt(Region::priority).reversed());
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            synchronized (this) {
+                // another swap in between: diff against what is live now
+                swap(next, index == base ? diff : RegionIndex.diff(index, next));
+            }
+        });
+    }
+
+    /** Swaps in the new snapshot; main thread. Other players are moved onto it on their next recalc. */
+    private void swap(RegionIndex next, RegionIndex.Diff diff) {
+        index = next;
+
+        int recalculated = 0;
+        if (!diff.isEmpty()) {
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                Location loc = player.getLocation();
+                if (loc.getWorld() == null
+                        || !diff.affects(loc.getWorld().getName(), loc.getX(), loc.getBlockY(), loc.getZ()))
+                    continue;
+                recalcPlayerRegions(player, loc, true);
+                recalculated++;
+            }
+        }
 
-        log.info("RegionService geladen: {} Regionen über {} Welten.",
-                regions.size(), regionsByWorld.size());
+        log.info("RegionService geladen: {} Regionen über {} Welten (+{} -{} ~{}), {} Spieler neu berechnet.",
+                next.size(), next.worldCount(), diff.added(), diff.removed(), diff.changed(), recalculated);
+    }
 
-        // recalc for all online players
-        for (Player player : Bukkit.getOnlinePlayers())
-            recalcPlayerRegions(player, player.getLocation(), true);
+    /** Number of loaded Regions over all worlds. */
+    public int regionCount() {
+        return index.size();
     }
 
     /** Gets a Region by its ID, if it exists. */
     public Optional<Region> getRegionById(String id) {
-        for (List<Region> regions : regionsByWorld.values()) {
-            for (Region region : regions) {
-                if (region.id().equalsIgnoreCase(id)) {
-                    return Optional.of(region);
-                }
-            }
-        }
-        return Optional.empty();
+        return Optional.ofNullable(index.byId(id));
     }
 
-    /** Gets all Regions at the given Location. */
+    /** Gets all Regions at the given Location, highest priority first. */
     public Set<Region> getRegionsAt(Location loc) {
         if (loc == null || loc.getWorld() == null) return Collections.emptySet();
 
-        List<Region> worldRegions = regionsByWorld.get(loc.getWorld().getName());
-        if (worldRegions == null || worldRegions.isEmpty()) {
+        RegionIndex idx = index;
+        long[] bits = new long[idx.words()];
+        if (!idx.collect(loc.getWorld().getName(), loc.getX(), loc.getBlockY(), loc.getZ(), bits)) {
             return Collections.emptySet();
         }
 
         Set<Region> result = new LinkedHashSet<>();
-        for (Region region : worldRegions) {
-            if (region.contains(loc)) {
-                result.add(region);
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                result.add(idx.region((w << 6) + Long.numberOfTrailingZeros(word)));
+                word &= word - 1;
             }
         }
         return result;
     }
 
+    /** Gets the Region with the highest priority at the given Location; skips everything below it. */
+    public Optional<Region> getTopRegionAt(Location loc) {
+        if (loc == null || loc.getWorld() == null) return Optional.empty();
+        return Optional.ofNullable(index.top(loc.getWorld().getName(), loc.getX(), loc.getBlockY(), loc.getZ()));
+    }
+
     /** Checks if the Player is currently in the given Region ID. */
     public boolean isInRegion(Player player, String regionId) {
-        Set<String> current = playerRegions.get(player.getUniqueId());
+        Membership current = playerRegions.get(player.getUniqueId());
         if (current == null) return false;
-        return current.contains(regionId);
+        return current.ids.contains(regionId);
     }
 
     /** Gets the IDs of all Regions the Player is currently in. */
     public Set<String> getPlayerRegionIds(Player player) {
-        return playerRegions.getOrDefault(player.getUniqueId(), Collections.emptySet());
+        Membership current = playerRegions.get(player.getUniqueId());
+        return current != null ? current.ids : Collections.emptySet();
+    }
+
+    /**
+     * Sets the tracking budget. With budgetMicros > 0, block steps only mark the player dirty and a
+     * per-tick task recalculates dirty players until the budget is used up (at least one per tick);
+     * several moves of one player between two runs collapse into one recalculation. Teleports and
+     * world changes are still handled immediately. budgetMicros <= 0 switches back to recalculating
+     * on every block step. Must be called on the main thread.
+     */
+    public void setTrackingBudget(long budgetMicros) {
+        if (budgetMicros <= 0) {
+            if (trackingTask != null) {
+                trackingTask.cancel();
+                trackingTask = null;
+            }
+            trackingBudgetNanos = 0L;
+            while (!dirty.isEmpty())
+                drainDirty(System.nanoTime());
+            return;
+        }
+
+        trackingBudgetNanos = budgetMicros * 1_000L;
+        if (trackingTask == null)
+            trackingTask = Bukkit.getScheduler().runTaskTimer(plugin, this::trackingTick, 1L, 1L);
+        log.info("Region-Tracking mit Budget {} µs pro Tick.", budgetMicros);
+    }
+
+    private void trackingTick() {
+        if (dirty.isEmpty())
+            return;
+
+        long start = System.nanoTime();
+        drainDirty(start + trackingBudgetNanos);
+        tickTimer.stop(start);
+        if (!dirty.isEmpty())
+            deferredCounter.add(dirty.size());
+    }
+
+    /** Recalculates dirty players until the deadline passes (at least one). */
+    private void drainDirty(long deadlineNanos) {
+        Player player;
+        while ((player = dirty.poll()) != null) {
+            Membership m = playerRegions.get(player.getUniqueId());
+            if (m != null)
+                m.dirty = false;
+            if (player.isOnline())
+                recalcPlayerRegions(player, player.getLocation(), false);
+            if (System.nanoTime() - deadlineNanos >= 0)
+                break;
+        }
+    }
+
+    private void markDirty(Player player) {
+        Membership m = playerRegions.computeIfAbsent(player.getUniqueId(), id -> new Membership());
+        if (!m.dirty) {
+            m.dirty = true;
+            dirty.add(player);
+        }
     }
 
     // ---------------- Event-Handling ----------------
@@ -115,6 +230,11 @@ public final class RegionService implements Listener {
             return;
         }
 
+        if (trackingTask != null && from.getWorld() == to.getWorld()) {
+            markDirty(event.getPlayer());
+            return;
+        }
+
         recalcPlayerRegions(event.getPlayer(), to, false);
     }
 
@@ -125,48 +245,125 @@ public final class RegionService implements Listener {
         recalcPlayerRegions(event.getPlayer(), to, false);
     }
 
-    /** Recalculates the Regions a Player is in, and fires enter/leave events. */
-    private void recalcPlayerRegions(Player player, Location to, boolean silent) {
-        UUID uuid = player.getUniqueId();
-        Set<String> oldRegions = playerRegions.getOrDefault(uuid, Collections.emptySet());
-        Set<String> newRegions = new LinkedHashSet<>();
-
-        for (Region region : getRegionsAt(to)) {
-            newRegions.add(region.id());
-        }
-
-        // Enter: in newRegions aber nicht in oldRegions
-        Set<String> entered = new LinkedHashSet<>(newRegions);
-        entered.removeAll(oldRegions);
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        Player player = event.getPlayer();
+        recalcPlayerRegions(player, player.getLocation(), false);
+    }
 
-        // Leave: in oldRegions aber nicht in newRegions
-        Set<String> left = new LinkedHashSet<>(oldRegions);
-        left.removeAll(newRegions);
+    /** Drops the membership (it pins the index it was built on) and a pending dirty entry. */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        Player player = event.getPlayer();
+        Membership m = playerRegions.remove(player.getUniqueId());
+        if (m != null && m.dirty)
+            dirty.remove(player);
+    }
 
-        if (!entered.isEmpty() || !left.isEmpty()) {
-            playerRegions.put(uuid, newRegions);
+    /**
+     * Recalculates the Regions a Player is in, and fires enter/leave events.
+     * Runs on the main thread; allocates nothing while the player's regions stay the same.
+     * Re-entrant: a listener may teleport the player, which recalculates (and reuses the buffers of
+     * the membership) before this call has fired all its events, so those work off their own copy.
+     */
+    private void recalcPlayerRegions(Player player, Location to, boolean silent) {
+        RegionIndex idx = index;
+        Membership m = playerRegions.computeIfAbsent(player.getUniqueId(), id -> new Membership());
+        if (m.index != idx)
+            m.rebase(idx);
+
+        // neue Mitgliedschaft in den Scratch-Puffer
+        long[] next = m.scratch;
+        Arrays.fill(next, 0L);
+        if (to != null && to.getWorld() != null)
+            idx.collect(to.getWorld().getName(), to.getX(), to.getBlockY(), to.getZ(), next);
+
+        long[] old = m.current;
+        long diff = 0L;
+        for (int w = 0; w < next.length; w++)
+            diff |= old[w] ^ next[w];
+        if (diff == 0L) {
+            return;
         }
 
+        m.current = next;
+        m.scratch = old;
+        m.ids = m.idsOf(next);
+
         if (silent) {
             return;
         }
 
-        for (String regionId : entered) {
-            Region region = getRegionById(regionId).orElse(null);
-            if (region == null) continue;
+        // Enter/Leave kopieren, bevor ein Listener old/next als Scratch wiederverwenden kann
+        long[] entered = new long[next.length];
+        long[] left = new long[next.length];
+        for (int w = 0; w < next.length; w++) {
+            entered[w] = (old[w] ^ next[w]) & next[w];
+            left[w] = (old[w] ^ next[w]) & old[w];
+        }
 
-            PlayerRegionEnterEvent enterEvent =
-                    new PlayerRegionEnterEvent(player, region, to);
-            Bukkit.getPluginManager().callEvent(enterEvent);
+        // Enter: in next aber nicht in old
+        for (int w = 0; w < entered.length; w++) {
+            long word = entered[w];
+            while (word != 0) {
+                int ordinal = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                Bukkit.getPluginManager().callEvent(new PlayerRegionEnterEvent(player, idx.region(ordinal), to));
+            }
         }
 
-        for (String regionId : left) {
-            Region region = getRegionById(regionId).orElse(null);
-            if (region == null) continue;
+        // Leave: in old aber nicht in next
+        for (int w = 0; w < left.length; w++) {
+            long word = left[w];
+            while (word != 0) {
+                int ordinal = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                Bukkit.getPluginManager().callEvent(new PlayerRegionLeaveEvent(player, idx.region(ordinal), to));
+            }
+        }
+    }
 
-            PlayerRegionLeaveEvent leaveEvent =
-                    new PlayerRegionLeaveEvent(player, region, to);
-            Bukkit.getPluginManager().callEvent(leaveEvent);
+    /**
+     * Regions of one player as bitset over the ordinals of one {@link RegionIndex}, double-buffered.
+     * Written on the main thread only; {@link #ids} is an immutable view for the getters.
+     */
+    private static final class Membership {
+
+        RegionIndex index = RegionIndex.EMPTY;
+        long[] current = new long[0];
+        long[] scratch = new long[0];
+        volatile Set<String> ids = Collections.emptySet();
+        boolean dirty;
+
+        /** Moves the membership onto a new index; regions that no longer exist are dropped without event. */
+        void rebase(RegionIndex next) {
+            long[] moved = new long[next.words()];
+            for (int w = 0; w < current.length; w++) {
+                long bits = current[w];
+                while (bits != 0) {
+                    int ordinal = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    int mapped = next.ordinal(index.region(ordinal).id());
+                    if (mapped >= 0)
+                        moved[mapped >>> 6] |= 1L << mapped;
+                }
+            }
+            index = next;
+            current = moved;
+            scratch = new long[moved.length];
+            ids = idsOf(moved);
+        }
+
+        Set<String> idsOf(long[] bits) {
+            Set<String> result = new LinkedHashSet<>();
+            for (int w = 0; w < bits.length; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    result.add(index.region((w << 6) + Long.numberOfTrailingZeros(word)).id());
+                    word &= word - 1;
+                }
+            }
+            return result.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(result);
         }
     }
 }
@@ -0,0 +1,159 @@
+package dev.chrona.common.region;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Bounding-volume hierarchy over the 3D boxes (XZ bounds + minY/maxY) of the regions of one world.
+ * <p>
+ * Bulk-loaded with sort-tile-recursive (STR): the boxes are cut into slabs along X, each slab into
+ * runs along Z, each run is sorted by Y and packed into full nodes; the same is repeated on the node
+ * boxes until one root is left. Immutable once built, so lookups need no locking.
+ * <p>
+ * Every node knows the smallest {@link RegionGeometry#ordinal} below it. Ordinals are assigned in
+ * priority order, so {@link #top} can skip every subtree that cannot beat the best hit so far.
+ */
+final class RegionTree {
+
+    /** Children per node / regions per leaf. */
+    private static final int FANOUT = 8;
+
+    private static final Comparator<Node> BY_X = Comparator.comparingDouble(n -> n.minX + n.maxX);
+    private static final Comparator<Node> BY_Z = Comparator.comparingDouble(n -> n.minZ + n.maxZ);
+    private static final Comparator<Node> BY_Y = Comparator.comparingDouble(n -> (double) n.minY + n.maxY);
+
+    private final Node root;
+
+    private RegionTree(Node root) {
+        this.root = root;
+    }
+
+    static RegionTree build(List<RegionGeometry> regions) {
+        List<Node> level = new ArrayList<>(regions.size());
+        for (RegionGeometry g : regions)
+            level.add(new Node(g));
+        while (level.size() > 1)
+            level = pack(level);
+        return new RegionTree(level.get(0));
+    }
+
+    /** Sets the bit of every region containing the point; returns false if there is none. */
+    boolean collect(double x, int y, double z, long[] bits) {
+        return collect(root, x, y, z, bits);
+    }
+
+    /** The containing region with the highest priority, or null. */
+    RegionGeometry top(double x, int y, double z) {
+        return top(root, x, y, z, null);
+    }
+
+    // ---------- Queries ----------
+
+    private static boolean collect(Node node, double x, int y, double z, long[] bits) {
+        if (!node.covers(x, y, z))
+            return false;
+        if (node.region != null) {
+            if (!node.region.contains(x, y, z))
+                return false;
+            int ordinal = node.region.ordinal;
+            bits[ordinal >>> 6] |= 1L << ordinal;
+            return true;
+        }
+
+        boolean hit = false;
+        for (Node child : node.children)
+            hit |= collect(child, x, y, z, bits);
+        return hit;
+    }
+
+    private static RegionGeometry top(Node node, double x, int y, double z, RegionGeometry best) {
+        // nothing below this node can have a higher priority than the best hit
+        if (best != null && node.minOrdinal >= best.ordinal)
+            return best;
+        if (!node.covers(x, y, z))
+            return best;
+        if (node.region != null)
+            return node.region.contains(x, y, z) ? node.region : best;
+
+        for (Node child : node.children)
+            best = top(child, x, y, z, best);
+        return best;
+    }
+
+    // ---------- STR bulk load ----------
+
+    private static List<Node> pack(List<Node> nodes) {
+        int n = nodes.size();
+        int parents = (n + FANOUT - 1) / FANOUT;
+        int slabs = (int) Math.ceil(Math.cbrt(parents));
+        int perSlab = slabs * slabs * FANOUT;
+        int perRun = slabs * FANOUT;
+
+        List<Node> result = new ArrayList<>(parents);
+        nodes.sort(BY_X);
+        for (int s = 0; s < n; s += perSlab) {
+            List<Node> slab = nodes.subList(s, Math.min(n, s + perSlab));
+            slab.sort(BY_Z);
+            for (int r = 0; r < slab.size(); r += perRun) {
+                List<Node> run = slab.subList(r, Math.min(slab.size(), r + perRun));
+                run.sort(BY_Y);
+                for (int c = 0; c < run.size(); c += FANOUT)
+                    result.add(new Node(run.subList(c, Math.min(run.size(), c + FANOUT)).toArray(new Node[0])));
+            }
+        }
+        return result;
+    }
+
+    private static final class Node {
+
+        final double minX, minZ, maxX, maxZ;
+        final int minY, maxY;
+        final int minOrdinal;
+        /** Leaf: the region; inner node: null. */
+        final RegionGeometry region;
+        /** Inner node, sorted by minOrdinal so {@link #top} finds good hits first. */
+        final Node[] children;
+
+        Node(RegionGeometry region) {
+            this.minX = region.minX;
+            this.minZ = region.minZ;
+            this.maxX = region.maxX;
+            this.maxZ = region.maxZ;
+            this.minY = region.minY;
+            this.maxY = region.maxY;
+            this.minOrdinal = region.ordinal;
+            this.region = region;
+            this.children = null;
+        }
+
+        Node(Node[] children) {
+            Arrays.sort(children, Comparator.comparingInt(c -> c.minOrdinal));
+            double x0 = Double.POSITIVE_INFINITY, z0 = Double.POSITIVE_INFINITY;
+            double x1 = Double.NEGATIVE_INFINITY, z1 = Double.NEGATIVE_INFINITY;
+            int y0 = Integer.MAX_VALUE, y1 = Integer.MIN_VALUE;
+            for (Node c : children) {
+                x0 = Math.min(x0, c.minX);
+                z0 = Math.min(z0, c.minZ);
+                x1 = Math.max(x1, c.maxX);
+                z1 = Math.max(z1, c.maxZ);
+                y0 = Math.min(y0, c.minY);
+                y1 = Math.max(y1, c.maxY);
+            }
+            this.minX = x0;
+            this.minZ = z0;
+            this.maxX = x1;
+            this.maxZ = z1;
+            this.minY = y0;
+            this.maxY = y1;
+            this.minOrdinal = children[0].minOrdinal;
+            this.region = null;
+            this.children = children;
+        }
+
+        boolean covers(double x, int y, double z) {
+            return x >= minX & x <= maxX & z >= minZ & z <= maxZ & y >= minY & y <= maxY;
+        }
+    }
+}
@@ -1,36 +1,43 @@
 package dev.chrona.common.region;
 
 import dev.chrona.common.Db;
-import dev.chrona.common.log.ChronaLog;
-import org.bukkit.Bukkit;
+import dev.chrona.common.db.AppendPipeline;
+import dev.chrona.common.db.CopyWriter;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.Plugin;
-import org.slf4j.Logger;
 
-import javax.sql.DataSource;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
-import java.util.Objects;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.UUID;
 
 /**
  * Service der Region-Enter/Leave-Ereignisse in die DB loggt.
  *
- * - Inserts laufen asynchron, um den Main-Thread nicht zu blockieren.
- * - Sehr simpler Ansatz: 1 Insert pro Event. Für deine Playerzahlen reicht das locker.
- *   Wenn du irgendwann >500 Spieler/Server hast, kann man auf Batching umbauen.
+ * - Events landen in einem Puffer ({@link AppendPipeline}); ein Writer-Thread schreibt sie per
+ *   COPY FROM STDIN (ein Statement pro Batch statt ein Task + Connection + Insert pro Event).
+ *   Geflusht wird, sobald batchSize Events da sind oder spätestens maxDelay nach dem ersten.
+ * - Läuft über den Telemetry-Pool; ist der Puffer voll, werden neue Events verworfen
+ *   (Load-Shedding, gezählt unter pipeline.region_log.dropped). Der Main-Thread wartet nie auf die DB.
  */
-public final class RegionVisitLogService {
+public final class RegionVisitLogService implements AutoCloseable {
 
-    private final Logger log = ChronaLog.get(RegionVisitLogService.class);
-    private final Plugin plugin;
-    private final DataSource ds;
+    private record Visit(UUID playerId, String regionId, String action, String world, int x, int y, int z, Instant at) {}
 
-    public RegionVisitLogService(Plugin plugin) {
-        this.plugin = Objects.requireNonNull(plugin, "plugin");
-        this.ds = Db.ds();
+    private final AppendPipeline<Visit> pipeline;
+
+    /** Puffer für 50k Events, Batches bis 2000 Events bzw. 1 s. */
+    public RegionVisitLogService() {
+        this(new AppendPipeline.Settings(50_000, 2_000, Duration.ofSeconds(1),
+                AppendPipeline.Overflow.DROP_NEWEST, Duration.ZERO));
+    }
+
+    public RegionVisitLogService(AppendPipeline.Settings settings) {
+        this.pipeline = new AppendPipeline<>("region_log", Db.ds(Db.Pool.TELEMETRY),
+                new CopyWriter<Visit>("player_region_log",
+                        "player_id, region_id, action, world, x, y, z, created_at",
+                        (row, v) -> row.add(v.playerId()).add(v.regionId()).add(v.action()).add(v.world())
+                                .add(v.x()).add(v.y()).add(v.z()).add(v.at())),
+                settings);
     }
 
     public void logEnter(Player player, Region region, Location to) {
@@ -41,40 +48,19 @@ public final class RegionVisitLogService {
         logVisit(player, region, to, "LEAVE");
     }
 
+    /** Schreibt noch gepufferte Events (beim Disable aufrufen). */
+    @Override
+    public void close() {
+        pipeline.close();
+    }
+
     private void logVisit(Player player, Region region, Location loc, String action) {
         if (player == null || region == null || loc == null || loc.getWorld() == null) {
             return;
         }
 
-        UUID playerId = player.getUniqueId();
-        String regionId = region.id();
-        String worldName = loc.getWorld().getName();
-        int x = loc.getBlockX();
-        int y = loc.getBlockY();
-        int z = loc.getBlockZ();
-
-        // Asynchron, damit wir den Main-Thread nicht blockieren
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            String sql = "INSERT INTO player_region_log " +
-                    "(player_id, region_id, action, world, x, y, z) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
-
-            try (Connection conn = ds.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
-
-                ps.setObject(1, playerId);
-                ps.setString(2, regionId);
-                ps.setString(3, action);
-                ps.setString(4, worldName);
-                ps.setInt(5, x);
-                ps.setInt(6, y);
-                ps.setInt(7, z);
-
-                ps.executeUpdate();
-            } catch (SQLException e) {
-                log.error("Fehler beim Logging von Region-Visit (player={}, region={}, action={}): {}",
-                        playerId, regionId, action, e.getMessage(), e);
-            }
-        });
+        // Zeitpunkt des Events, nicht des Batches
+        pipeline.append(new Visit(player.getUniqueId(), region.id(), action, loc.getWorld().getName(),
+                loc.getBlockX(), loc.getBlockY(), loc.getBlockZ(), Instant.now()));
     }
 }
@@ -0,0 +1,315 @@
+-- V13__telemetry_partitions.sql
+-- Append-only telemetry tables as range partitions on created_at, with rollups and retention.
+--
+-- player_region_log (daily), player_flag_log, player_quest_history and job_run (monthly) are
+-- converted in place. TelemetryMaintenance creates partitions ahead of time and, per configured
+-- retention, rolls expired partitions up into the *_daily tables before dropping (or just
+-- detaching, for archiving) them. Dropping a partition is cheap and leaves no bloat behind,
+-- unlike DELETE on an ever growing table.
+
+create table if not exists telemetry_table (
+  table_name  text primary key,
+  granularity text not null check (granularity in ('day', 'month')),
+  rollup_fn   text               -- called as fn(from, to) before a partition is dropped
+);
+
+-- ---------- Partitions ----------
+
+-- Creates the partition containing p_at, if missing. Returns true if created.
+-- Rows of that range already in <table>_default would make CREATE fail (and every later ensure
+-- call with it), so then the default is detached, the partition created, the rows moved over and
+-- the default attached again (as econ_create_transfer_partition in V7).
+create or replace function telemetry_create_partition(p_table text, p_at date)
+returns boolean
+language plpgsql
+as $$
+declare
+    v_gran    text;
+    v_from    date;
+    v_to      date;
+    v_name    text;
+    v_default text := p_table || '_default';
+    v_stray   boolean := false;
+begin
+    select granularity into v_gran from telemetry_table where table_name = p_table;
+    if v_gran is null then
+        raise exception 'UNKNOWN_TELEMETRY_TABLE %', p_table using errcode = '22023';
+    end if;
+
+    v_from := date_trunc(v_gran, p_at)::date;
+    v_to := (v_from + ('1 ' || v_gran)::interval)::date;
+    v_name := p_table || '_' || to_char(v_from, case v_gran when 'day' then 'YYYYMMDD' else 'YYYYMM' end);
+    if to_regclass(v_name) is not null then
+        return false;
+    end if;
+
+    if to_regclass(v_default) is not null then
+        execute format('select exists (select 1 from %I where created_at >= %L and created_at < %L)',
+                       v_default, v_from, v_to) into v_stray;
+    end if;
+    if not v_stray then
+        execute format('create table %I partition of %I for values from (%L) to (%L)',
+                       v_name, p_table, v_from, v_to);
+        return true;
+    end if;
+
+    execute format('alter table %I detach partition %I', p_table, v_default);
+    execute format('create table %I partition of %I for values from (%L) to (%L)',
+                   v_name, p_table, v_from, v_to);
+    execute format('with moved as (delete from %I where created_at >= %L and created_at < %L returning *) '
+                   'insert into %I select * from moved', v_default, v_from, v_to, p_table);
+    execute format('alter table %I attach partition %I default', p_table, v_default);
+    return true;
+end;
+$$;
+
+-- Makes sure the current and the next p_ahead partitions exist. Returns the number created.
+create or replace function telemetry_ensure_partitions(p_table text, p_ahead int)
+returns int
+language plpgsql
+as $$
+declare
+    v_gran    text;
+    v_created int := 0;
+begin
+    select granularity into v_gran from telemetry_table where table_name = p_table;
+    for i in 0..greatest(p_ahead, 0) loop
+        if telemetry_create_partition(p_table, (date_trunc(v_gran, now()) + i * ('1 ' || v_gran)::interval)::date) then
+            v_created := v_created + 1;
+        end if;
+    end loop;
+    return v_created;
+end;
+$$;
+
+-- Rolls up, then detaches (p_archive) or drops every partition that ends before now() - p_retention.
+-- Oldest first; returns the number of partitions removed from the table.
+create or replace function telemetry_expire_partitions(p_table text, p_retention interval, p_archive boolean)
+returns int
+language plpgsql
+as $$
+declare
+    v_gran   text;
+    v_rollup text;
+    v_part   text;
+    v_from   date;
+    v_to     date;
+    v_count  int := 0;
+begin
+    select granularity, rollup_fn into v_gran, v_rollup from telemetry_table where table_name = p_table;
+    if v_gran is null then
+        raise exception 'UNKNOWN_TELEMETRY_TABLE %', p_table using errcode = '22023';
+    end if;
+
+    -- names end in YYYYMMDD / YYYYMM, so name order is time order
+    for v_part in
+        select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid
+        where i.inhparent = to_regclass(p_table) and c.relname <> p_table || '_default'
+        order by c.relname
+    loop
+        v_from := case v_gran when 'day' then to_date(right(v_part, 8), 'YYYYMMDD')
+                              else to_date(right(v_part, 6), 'YYYYMM') end;
+        v_to := (v_from + ('1 ' || v_gran)::interval)::date;
+        exit when v_to > now() - p_retention;
+
+        if v_rollup is not null then
+            execute format('select %I($1, $2)', v_rollup) using v_from::timestamptz, v_to::timestamptz;
+        end if;
+        execute format('alter table %I detach partition %I', p_table, v_part);
+        if not p_archive then
+            execute format('drop table %I', v_part);
+        end if;
+        v_count := v_count + 1;
+    end loop;
+    return v_count;
+end;
+$$;
+
+-- Converts a plain table with a created_at column into a partitioned one (same columns, defaults,
+-- checks, indexes and outgoing foreign keys; primary key becomes (id, created_at)). Skips tables
+-- that are missing (module not installed) or already partitioned; registers the table either way.
+create or replace function telemetry_partition_table(p_table text, p_granularity text, p_rollup text, p_ahead int)
+returns void
+language plpgsql
+as $$
+declare
+    v_legacy  text := p_table || '_legacy';
+    v_indexes text[];
+    v_fkeys   text[];
+    v_def     text;
+    v_has_id  boolean;
+    v_seq     text;
+    v_min     timestamptz;
+    v_at      date;
+begin
+    if to_regclass(p_table) is null then
+        return;
+    end if;
+
+    insert into telemetry_table (table_name, granularity, rollup_fn) values (p_table, p_granularity, p_rollup)
+    on conflict (table_name) do update set granularity = excluded.granularity, rollup_fn = excluded.rollup_fn;
+
+    if exists (select 1 from pg_partitioned_table where partrelid = to_regclass(p_table)) then
+        return;
+    end if;
+
+    -- secondary indexes are rebuilt on the new table (unique ones would need the partition key)
+    select array_agg(pg_get_indexdef(indexrelid)) into v_indexes
+    from pg_index where indrelid = to_regclass(p_table) and not indisunique;
+    -- LIKE doesn't copy foreign keys (e.g. job_run -> player on delete cascade, job_run -> job)
+    select array_agg(format('alter table %I add constraint %I %s', p_table, conname, pg_get_constraintdef(oid)))
+    into v_fkeys
+    from pg_constraint where conrelid = to_regclass(p_table) and contype = 'f';
+
+    select exists (select 1 from information_schema.columns
+                   where table_name = p_table and column_name = 'id') into v_has_id;
+    if v_has_id then
+        v_seq := pg_get_serial_sequence(p_table, 'id');
+    end if;
+
+    execute format('alter table %I rename to %I', p_table, v_legacy);
+    execute format('create table %I (like %I including defaults including constraints including storage) '
+                   'partition by range (created_at)', p_table, v_legacy);
+    if v_seq is not null then
+        -- keep the id sequence alive when the legacy table goes
+        execute format('alter sequence %s owned by %I.id', v_seq, p_table);
+    end if;
+    execute format('create table %I partition of %I default', p_table || '_default', p_table);
+
+    execute format('select min(created_at) from %I', v_legacy) into v_min;
+    v_at := date_trunc(p_granularity, coalesce(v_min, now()))::date;
+    while v_at <= now()::date loop
+        perform telemetry_create_partition(p_table, v_at);
+        v_at := (v_at + ('1 ' || p_granularity)::interval)::date;
+    end loop;
+    perform telemetry_ensure_partitions(p_table, p_ahead);
+
+    execute format('insert into %I select * from %I', p_table, v_legacy);
+    execute format('drop table %I', v_legacy);
+
+    if v_has_id then
+        execute format('alter table %I add primary key (id, created_at)', p_table);
+    end if;
+    foreach v_def in array coalesce(v_indexes, '{}') loop
+        execute v_def;
+    end loop;
+    foreach v_def in array coalesce(v_fkeys, '{}') loop
+        execute v_def;
+    end loop;
+end;
+$$;
+
+-- ---------- Rollups ----------
+-- One row per day and key; recomputed (not added up) on conflict, so a rollup can be repeated.
+
+create table if not exists player_region_visit_daily (
+  day       date not null,
+  region_id text not null,
+  world     text not null,
+  enters    bigint not null,
+  leaves    bigint not null,
+  players   bigint not null,
+  primary key (day, region_id, world)
+);
+
+create table if not exists player_flag_log_daily (
+  day      date not null,
+  flag_key text not null,
+  action   text not null,
+  changes  bigint not null,
+  players  bigint not null,
+  primary key (day, flag_key, action)
+);
+
+create table if not exists player_quest_history_daily (
+  day      date not null,
+  quest_id text not null,
+  action   text not null,
+  entries  bigint not null,
+  players  bigint not null,
+  primary key (day, quest_id, action)
+);
+
+create table if not exists job_run_daily (
+  day     date not null,
+  job_id  text not null,
+  season  text not null,
+  runs    bigint not null,
+  players bigint not null,
+  primary key (day, job_id, season)
+);
+
+-- plpgsql: the bodies are only resolved when called (player_quest_history may not exist)
+create or replace function telemetry_rollup_region_log(p_from timestamptz, p_to timestamptz)
+returns void
+language plpgsql
+as $$
+begin
+    insert into player_region_visit_daily (day, region_id, world, enters, leaves, players)
+    select created_at::date, region_id, world,
+           count(*) filter (where action = 'ENTER'),
+           count(*) filter (where action = 'LEAVE'),
+           count(distinct player_id)
+    from player_region_log
+    where created_at >= p_from and created_at < p_to
+    group by 1, 2, 3
+    on conflict (day, region_id, world) do update
+    set enters = excluded.enters, leaves = excluded.leaves, players = excluded.players;
+end;
+$$;
+
+create or replace function telemetry_rollup_flag_log(p_from timestamptz, p_to timestamptz)
+returns void
+language plpgsql
+as $$
+begin
+    insert into player_flag_log_daily (day, flag_key, action, changes, players)
+    select created_at::date, flag_key, action, count(*), count(distinct player_id)
+    from player_flag_log
+    where created_at >= p_from and created_at < p_to
+    group by 1, 2, 3
+    on conflict (day, flag_key, action) do update
+    set changes = excluded.changes, players = excluded.players;
+end;
+$$;
+
+create or replace function telemetry_rollup_quest_history(p_from timestamptz, p_to timestamptz)
+returns void
+language plpgsql
+as $$
+begin
+    insert into player_quest_history_daily (day, quest_id, action, entries, players)
+    select created_at::date, quest_id, action, count(*), count(distinct player_id)
+    from player_quest_history
+    where created_at >= p_from and created_at < p_to
+    group by 1, 2, 3
+    on conflict (day, quest_id, action) do update
+    set entries = excluded.entries, players = excluded.players;
+end;
+$$;
+
+create or replace function telemetry_rollup_job_run(p_from timestamptz, p_to timestamptz)
+returns void
+language plpgsql
+as $$
+begin
+    insert into job_run_daily (day, job_id, season, runs, players)
+    select created_at::date, job_id, coalesce(season, ''), count(*), count(distinct player_id)
+    from job_run
+    where created_at >= p_from and created_at < p_to
+    group by 1, 2, 3
+    on conflict (day, job_id, season) do update
+    set runs = excluded.runs, players = excluded.players;
+end;
+$$;
+
+-- ---------- Conversion ----------
+
+-- job_run can't stay the target of a foreign key once partitioned (unique keys need created_at).
+-- job_reward_claim is not written by the code; payouts are deduplicated through econ_claim.
+alter table if exists job_reward_claim drop constraint if exists job_reward_claim_job_run_id_fkey;
+
+select telemetry_partition_table('player_region_log', 'day', 'telemetry_rollup_region_log', 7);
+select telemetry_partition_table('player_flag_log', 'month', 'telemetry_rollup_flag_log', 2);
+select telemetry_partition_table('player_quest_history', 'month', 'telemetry_rollup_quest_history', 2);
+select telemetry_partition_table('job_run', 'month', 'telemetry_rollup_job_run', 2);
@@ -0,0 +1,190 @@
+package dev.chrona.common.region;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the compiled geometry and the BVH against {@link Region#contains}, the reference
+ * implementation, on random regions and points. Points are random doubles, so they practically
+ * never land exactly on a slanted edge (where RegionGeometry may round differently).
+ */
+class RegionBruteForceTest {
+
+    private static final long SEED = 0x5EEDC0DEL;
+    private static final String[] WORLDS = {"world", "world_nether"};
+    private static final int SPAN = 400;
+
+    private final Map<String, World> worlds = new HashMap<>();
+
+    @Test
+    void geometryMatchesRegionContains() {
+        Random rnd = new Random(SEED);
+        for (Region region : randomRegions(rnd, 200)) {
+            RegionGeometry g = RegionGeometry.compile(region, 0);
+            for (int i = 0; i < 500; i++) {
+                double x = g.minX - 5 + rnd.nextDouble() * (g.maxX - g.minX + 10);
+                double z = g.minZ - 5 + rnd.nextDouble() * (g.maxZ - g.minZ + 10);
+                double y = g.minY - 3 + rnd.nextDouble() * (g.maxY - g.minY + 6);
+                Location loc = location(region.worldName(), x, y, z);
+
+                assertEquals(region.contains(loc), g.contains(x, loc.getBlockY(), z),
+                        region.id() + " at " + x + "/" + y + "/" + z);
+            }
+        }
+    }
+
+    @Test
+    void treeMatchesBruteForce() {
+        Random rnd = new Random(SEED + 1);
+        List<Region> regions = new ArrayList<>(randomRegions(rnd, 300));
+        regions.removeIf(r -> !r.worldName().equals(WORLDS[0]));
+        regions.sort(Comparator.comparingInt(Region::priority).reversed());
+
+        List<RegionGeometry> geometries = new ArrayList<>();
+        for (int i = 0; i < regions.size(); i++)
+            geometries.add(RegionGeometry.compile(regions.get(i), i));
+        RegionTree tree = RegionTree.build(geometries);
+
+        long[] bits = new long[(regions.size() + 63) >>> 6];
+        for (int i = 0; i < 20_000; i++) {
+            double x = rnd.nextDouble() * SPAN, z = rnd.nextDouble() * SPAN, y = rnd.nextDouble() * 128;
+            Location loc = location(WORLDS[0], x, y, z);
+
+            long[] expected = new long[bits.length];
+            RegionGeometry expectedTop = null;
+            for (RegionGeometry g : geometries) {
+                if (g.region.contains(loc)) {
+                    expected[g.ordinal >>> 6] |= 1L << g.ordinal;
+                    if (expectedTop == null)
+                        expectedTop = g;
+                }
+            }
+
+            Arrays.fill(bits, 0L);
+            String at = x + "/" + y + "/" + z;
+            assertEquals(expectedTop != null, tree.collect(x, loc.getBlockY(), z, bits), at);
+            assertArrayEquals(expected, bits, at);
+            assertSame(expectedTop, tree.top(x, loc.getBlockY(), z), at);
+        }
+    }
+
+    @Test
+    void indexMatchesBruteForce() {
+        Random rnd = new Random(SEED + 2);
+        List<Region> regions = randomRegions(rnd, 400);
+        RegionIndex index = RegionIndex.build(regions);
+
+        long[] bits = new long[index.words()];
+        for (int i = 0; i < 20_000; i++) {
+            String world = WORLDS[rnd.nextInt(WORLDS.length)];
+            double x = rnd.nextDouble() * SPAN, z = rnd.nextDouble() * SPAN, y = rnd.nextDouble() * 128;
+            Location loc = location(world, x, y, z);
+
+            Set<String> expected = new HashSet<>();
+            int topPriority = Integer.MIN_VALUE;
+            for (Region r : regions) {
+                if (r.contains(loc)) {
+                    expected.add(r.id());
+                    topPriority = Math.max(topPriority, r.priority());
+                }
+            }
+
+            Arrays.fill(bits, 0L);
+            index.collect(world, x, loc.getBlockY(), z, bits);
+            Set<String> actual = new HashSet<>();
+            for (int w = 0; w < bits.length; w++) {
+                for (long word = bits[w]; word != 0; word &= word - 1)
+                    actual.add(index.region((w << 6) + Long.numberOfTrailingZeros(word)).id());
+            }
+
+            String at = world + " " + x + "/" + y + "/" + z;
+            assertEquals(expected, actual, at);
+            Region top = index.top(world, x, loc.getBlockY(), z);
+            if (expected.isEmpty()) {
+                assertNull(top, at);
+            }
+            else {
+                assertNotNull(top, at);
+                assertTrue(expected.contains(top.id()), at);
+                assertEquals(topPriority, top.priority(), at);
+            }
+        }
+    }
+
+    // ---------- Helpers ----------
+
+    /** Axis-aligned RECTs (corners in any order), star-shaped polygons and RECT-typed non-boxes. */
+    private static List<Region> randomRegions(Random rnd, int count) {
+        List<Region> regions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String world = WORLDS[rnd.nextInt(WORLDS.length)];
+            int minY = rnd.nextInt(100) - 10;
+            int maxY = minY + rnd.nextInt(60);
+            int priority = rnd.nextInt(20);
+            double cx = rnd.nextInt(SPAN), cz = rnd.nextInt(SPAN);
+
+            List<RegionPoint> points = new ArrayList<>();
+            RegionType type;
+            switch (rnd.nextInt(3)) {
+                case 0 -> {
+                    double w = 1 + rnd.nextInt(60), d = 1 + rnd.nextInt(60);
+                    points.add(new RegionPoint(cx, cz));
+                    points.add(new RegionPoint(cx + w, cz));
+                    points.add(new RegionPoint(cx + w, cz + d));
+                    points.add(new RegionPoint(cx, cz + d));
+                    if (rnd.nextBoolean())
+                        points = new ArrayList<>(points.reversed());
+                    type = RegionType.RECT;
+                }
+                case 1 -> {
+                    int n = 3 + rnd.nextInt(10);
+                    double[] angles = new double[n];
+                    for (int k = 0; k < n; k++)
+                        angles[k] = rnd.nextDouble() * 2 * Math.PI;
+                    Arrays.sort(angles);
+                    for (double a : angles) {
+                        double radius = 5 + rnd.nextInt(50);
+                        points.add(new RegionPoint(Math.round(cx + Math.cos(a) * radius),
+                                Math.round(cz + Math.sin(a) * radius)));
+                    }
+                    type = RegionType.POLYGON;
+                }
+                default -> {
+                    // declared RECT, but a triangle: must take the polygon path
+                    points.add(new RegionPoint(cx, cz));
+                    points.add(new RegionPoint(cx + 10 + rnd.nextInt(40), cz));
+                    points.add(new RegionPoint(cx, cz + 10 + rnd.nextInt(40)));
+                    type = RegionType.RECT;
+                }
+            }
+            regions.add(new Region("r" + i, null, world, type, points, minY, maxY, priority));
+        }
+        return regions;
+    }
+
+    private Location location(String world, double x, double y, double z) {
+        World w = worlds.computeIfAbsent(world, name -> (World) Proxy.newProxyInstance(
+                World.class.getClassLoader(), new Class<?>[]{World.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getName", "toString" -> name;
+                    case "hashCode" -> name.hashCode();
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }));
+        return new Location(w, x, y, z);
+    }
+}
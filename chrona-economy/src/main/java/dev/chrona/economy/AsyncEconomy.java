@@ -0,0 +1,172 @@
+package dev.chrona.economy;
+
+import dev.chrona.common.log.ChronaLog;
+import dev.chrona.common.log.ChronaMarkers;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Runs a blocking {@link EconomyService} on virtual threads.
+ * <p>
+ * - At most {@code maxInFlight} calls run at the same time; further calls fail fast with
+ *   RejectedExecutionException("ECON_BUSY") instead of queueing up behind a slow database.
+ * - Results are handed to the callback executor (e.g. the Bukkit main thread).
+ */
+public final class AsyncEconomy implements AsyncEconomyService, AutoCloseable {
+
+    private static final Logger log = ChronaLog.get(AsyncEconomy.class);
+
+    private final EconomyService econ;
+    private final Executor callbacks;
+    private final Semaphore permits;
+    private final ExecutorService workers =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("chrona-econ-", 0).factory());
+
+    public AsyncEconomy(EconomyService econ, int maxInFlight, Executor callbacks) {
+        this.econ = Objects.requireNonNull(econ, "econ");
+        this.callbacks = Objects.requireNonNull(callbacks, "callbacks");
+        if (maxInFlight <= 0)
+            throw new IllegalArgumentException("maxInFlight must be > 0");
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public CompletableFuture<Long> getBalance(UUID playerId) {
+        return submit(() -> econ.getBalance(playerId));
+    }
+
+    @Override
+    public CompletableFuture<UuidLongMap> getBalances(Collection<UUID> playerIds) {
+        List<UUID> ids = List.copyOf(playerIds);
+        return submit(() -> econ.getBalances(ids));
+    }
+
+    @Override
+    public CompletableFuture<Long> pay(UUID from, UUID to, long amount) {
+        return submit(() -> econ.pay(from, to, amount));
+    }
+
+    @Override
+    public CompletableFuture<Long> claimOnce(UUID playerId, UUID claimId, long amount, String source) {
+        return submit(() -> econ.claimOnce(playerId, claimId, amount, source));
+    }
+
+    @Override
+    public CompletableFuture<Long> mint(UUID sender, UUID to, long amount, UUID corrId) {
+        return submit(() -> econ.mint(sender, to, amount, corrId));
+    }
+
+    @Override
+    public CompletableFuture<Long> burn(UUID sender, UUID from, long amount, UUID corrId) {
+        return submit(() -> econ.burn(sender, from, amount, corrId));
+    }
+
+    @Override
+    public CompletableFuture<List<PostingResult>> settleBatch(List<Posting> postings) {
+        List<Posting> batch = List.copyOf(postings);
+        return submit(() -> econ.settleBatch(batch));
+    }
+
+    @Override
+    public CompletableFuture<UUID> hold(UUID playerId, long amount, Duration ttl) {
+        return submit(() -> econ.hold(playerId, amount, ttl));
+    }
+
+    @Override
+    public CompletableFuture<Long> capture(UUID holdId, UUID to) {
+        return submit(() -> econ.capture(holdId, to));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> release(UUID holdId) {
+        return submit(() -> econ.release(holdId));
+    }
+
+    @Override
+    public CompletableFuture<Transfer[]> getTransfers(UUID playerId, int limit, int offset) {
+        return submit(() -> econ.getTransfers(playerId, limit, offset));
+    }
+
+    @Override
+    public CompletableFuture<TransferPage> getTransferPage(UUID playerId, TransferCursor after, int limit) {
+        return submit(() -> {
+            List<Transfer> transfers = new ArrayList<>(limit);
+            TransferCursor next = econ.forEachTransfer(playerId, after, limit, transfers::add);
+            return new TransferPage(transfers, next);
+        });
+    }
+
+    /** Waits for running calls and stops the workers. */
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS))
+                log.warn(ChronaMarkers.ECON, "Async economy calls still running on shutdown.");
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------- Internals ----------
+
+    private <T> CompletableFuture<T> submit(EconCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (!permits.tryAcquire()) {
+            future.completeExceptionally(new RejectedExecutionException("ECON_BUSY"));
+            return future;
+        }
+
+        try {
+            workers.execute(() -> {
+                T result = null;
+                Throwable error = null;
+                try {
+                    result = call.call();
+                }
+                catch (Throwable t) {
+                    error = t;
+                }
+                finally {
+                    permits.release();
+                }
+                complete(future, result, error);
+            });
+        }
+        catch (RejectedExecutionException ex) {
+            permits.release();
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private <T> void complete(CompletableFuture<T> future, T result, Throwable error) {
+        Runnable r = () -> {
+            if (error != null)
+                future.completeExceptionally(error);
+            else
+                future.complete(result);
+        };
+
+        try {
+            callbacks.execute(r);
+        }
+        catch (RuntimeException ex) {
+            // callback executor gone (e.g. plugin disabling) – complete on this thread instead
+            r.run();
+        }
+    }
+
+    @FunctionalInterface
+    private interface EconCall<T> {
+        T call() throws Exception;
+    }
+}
@@ -0,0 +1,52 @@
+package dev.chrona.economy;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link EconomyService}.
+ * <p>
+ * Futures complete on the callback executor the implementation was created with (on the server this is
+ * the main thread), so callers can touch game state directly in their continuations. Failures complete
+ * the future with the original exception (e.g. SQLException, IllegalArgumentException) or with a
+ * {@link java.util.concurrent.RejectedExecutionException} if the economy is saturated.
+ */
+public interface AsyncEconomyService {
+
+    CompletableFuture<Long> getBalance(UUID playerId);
+
+    /** @see EconomyService#getBalances(java.util.Collection) */
+    CompletableFuture<UuidLongMap> getBalances(Collection<UUID> playerIds);
+
+    /** @see EconomyService#pay(UUID, UUID, long) */
+    CompletableFuture<Long> pay(UUID from, UUID to, long amount);
+
+    /** @see EconomyService#claimOnce(UUID, UUID, long, String) */
+    CompletableFuture<Long> claimOnce(UUID playerId, UUID claimId, long amount, String source);
+
+    /** @see EconomyService#mint(UUID, UUID, long, UUID) */
+    CompletableFuture<Long> mint(UUID sender, UUID to, long amount, UUID corrId);
+
+    /** @see EconomyService#burn(UUID, UUID, long, UUID) */
+    CompletableFuture<Long> burn(UUID sender, UUID from, long amount, UUID corrId);
+
+    /** @see EconomyService#settleBatch(List) */
+    CompletableFuture<List<PostingResult>> settleBatch(List<Posting> postings);
+
+    /** @see EconomyService#hold(UUID, long, Duration) */
+    CompletableFuture<UUID> hold(UUID playerId, long amount, Duration ttl);
+
+    /** @see EconomyService#capture(UUID, UUID) */
+    CompletableFuture<Long> capture(UUID holdId, UUID to);
+
+    /** @see EconomyService#release(UUID) */
+    CompletableFuture<Boolean> release(UUID holdId);
+
+    CompletableFuture<Transfer[]> getTransfers(UUID playerId, int limit, int offset);
+
+    /** @see EconomyService#forEachTransfer(UUID, TransferCursor, int, java.util.function.Consumer) */
+    CompletableFuture<TransferPage> getTransferPage(UUID playerId, TransferCursor after, int limit);
+}
@@ -0,0 +1,19 @@
+package dev.chrona.economy;
+
+import java.util.UUID;
+
+/**
+ * Receives the new balance of a wallet after a change (pay, claim, mint, burn, settlement).
+ * <p>
+ * Called on the thread that made the change, partly while the wallet is locked:
+ * implementations must be cheap and must not call back into the economy.
+ */
+@FunctionalInterface
+public interface BalanceListener {
+
+    /**
+     * @param playerId Wallet owner
+     * @param balance  Balance after the change
+     */
+    void balanceChanged(UUID playerId, long balance);
+}
@@ -0,0 +1,852 @@
+package dev.chrona.economy;
+
+import dev.chrona.common.log.ChronaLog;
+import dev.chrona.common.log.ChronaMarkers;
+import dev.chrona.common.metrics.Counter;
+import dev.chrona.common.metrics.Metrics;
+import dev.chrona.common.metrics.Timer;
+import org.slf4j.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind cache in front of {@link PgEconomy}.
+ * <p>
+ * Holds the authoritative balances of online players in memory. Changes on cached wallets are applied
+ * in memory and persisted by a background flusher in batches (wallet deltas + econ_transfer rows in one
+ * transaction). Operations that need the database to decide (uncached sender, claim idempotency) go
+ * through the delegate; the cache then applies the same change in memory.
+ * <p>
+ * Invariant: cached balance == wallet.balance + sum of the not yet flushed deltas of that wallet.
+ * <p>
+ * Writes the delegate commits itself keep cached wallets locked from the DB call until the cache
+ * follows, so {@link #refresh} can't read in between. Writes that reach the DB without a cached copy
+ * (the wallet was not loaded yet) bump a per-wallet stripe counter; {@link #load} reads again if the
+ * counter moved while it was reading, and the writer re-reads a wallet that got loaded meanwhile.
+ * <p>
+ * A batch that fails on its data (SQLState class 22/23, or EC001/EC002 from the econ functions), or
+ * keeps failing, is split down to the offending transfers; those are logged (AUDIT) and dropped,
+ * everything else is written.
+ * <p>
+ * Hot accounts (V9) are never cached; a wallet that becomes one is evicted.
+ */
+public final class CachedEconomy implements EconomyService, AutoCloseable {
+
+    private static final Logger log = ChronaLog.get(CachedEconomy.class);
+
+    private static final Timer FLUSH = Metrics.timer("econ.flush");
+    private static final Counter FLUSH_RETRIES = Metrics.counter("econ.flush.retries");
+    private static final Counter DEAD_LETTERS = Metrics.counter("econ.flush.dead_letters");
+
+    /** Failed attempts of the same batch before it is split, even if the error looks transient. */
+    private static final int MAX_FLUSH_ATTEMPTS = 5;
+    private static final int WRITE_STRIPES = 256;
+
+    private final PgEconomy delegate;
+    private final DataSource ds;
+    private final int maxBatch;
+
+    private final Map<UUID, Account> accounts = new ConcurrentHashMap<>();
+    /** Hold ID -> holder, for holds of cached wallets. */
+    private final Map<UUID, UUID> holdOwners = new ConcurrentHashMap<>();
+    private final Queue<PendingTransfer> pending = new ConcurrentLinkedQueue<>();
+    // Wallet -> queued transfers (pending or retry) it is a party of; lets flushFor skip the flush
+    private final Map<UUID, Integer> queued = new ConcurrentHashMap<>();
+
+    // Batches that failed to persist; only touched while holding flushLock
+    private final Deque<PendingTransfer> retry = new ArrayDeque<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Failed attempts of the batch at the head of retry; guarded by flushLock
+    private int headAttempts;
+    // Per wallet stripe: writes that reached the DB without the wallet's cached copy (see load)
+    private final AtomicLongArray uncachedWrites = new AtomicLongArray(WRITE_STRIPES);
+    private final ScheduledExecutorService flusher;
+    private volatile BalanceListener listener;
+
+    public CachedEconomy(PgEconomy delegate, DataSource ds, Duration flushInterval, int maxBatch) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.ds = Objects.requireNonNull(ds, "dataSource");
+        if (maxBatch <= 0)
+            throw new IllegalArgumentException("maxBatch must be > 0");
+        this.maxBatch = maxBatch;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "chrona-econ-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        long ms = Math.max(10L, flushInterval.toMillis());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, ms, ms, TimeUnit.MILLISECONDS);
+
+        Metrics.gauge("econ.cache.accounts", accounts::size);
+        // a striped wallet's row is not its balance, and its writers must not queue up on our lock
+        delegate.setHotAccountListener(this::unload);
+    }
+
+    // ---------- Lifecycle ----------
+
+    /** Loads the wallet of a player into the cache (call on join, off the main thread). */
+    public void load(UUID playerId) throws SQLException {
+        if (accounts.containsKey(playerId))
+            return;
+        // hot accounts are striped in the DB for concurrent writers; caching would funnel them through one lock again
+        if (delegate.isHotAccount(playerId))
+            return;
+
+        long seen = uncachedWrites.get(stripe(playerId));
+
+        // pending deltas for this wallet must be in the DB before we read it
+        flushFor(List.of(playerId));
+        long bal = delegate.getBalance(playerId);
+        Account acc = new Account(bal);
+        for (PgEconomy.ActiveHold h : delegate.activeHolds(playerId))
+            acc.holds.put(h.holdId(), h);
+
+        acc.lock.lock();
+        try {
+            if (accounts.putIfAbsent(playerId, acc) != null)
+                return;
+            acc.holds.keySet().forEach(id -> holdOwners.put(id, playerId));
+
+            // made hot while we were reading: the listener's unload came too early
+            if (delegate.isHotAccount(playerId)) {
+                unload(playerId);
+                return;
+            }
+
+            // a write without cached copy committed while we were reading: our values may predate it
+            if (uncachedWrites.get(stripe(playerId)) != seen)
+                reread(playerId, acc);
+        }
+        catch (SQLException | RuntimeException e) {
+            unload(playerId);
+            throw e;
+        }
+        finally {
+            acc.lock.unlock();
+        }
+    }
+
+    /** Evicts a player from the cache (call on quit). Unflushed deltas stay queued. */
+    public void unload(UUID playerId) {
+        Account acc = accounts.remove(playerId);
+        if (acc == null)
+            return;
+        acc.lock.lock();
+        try {
+            acc.holds.keySet().forEach(holdOwners::remove);
+        }
+        finally {
+            acc.lock.unlock();
+        }
+    }
+
+    /**
+     * Drops a cached wallet after another server changed it (see {@link OutboxListener}); until it is
+     * loaded again, operations on it go to the DB. Unflushed deltas stay queued, so nothing is read or
+     * flushed here and the caller's thread never waits on the wallet.
+     * @return false if the wallet was not cached (nothing to do)
+     */
+    public boolean invalidate(UUID playerId) {
+        if (!accounts.containsKey(playerId))
+            return false;
+        unload(playerId);
+        return true;
+    }
+
+    /** Registers the listener for balance changes, in memory and through the delegate (null to remove). */
+    public void setBalanceListener(BalanceListener listener) {
+        this.listener = listener;
+        delegate.setBalanceListener(listener);
+    }
+
+    /** Returns true if the wallet of this player is currently held in memory. */
+    public boolean isCached(UUID playerId) {
+        return accounts.containsKey(playerId);
+    }
+
+    /** Stops the background flusher and writes all pending changes. */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(5, TimeUnit.SECONDS))
+                log.warn(ChronaMarkers.ECON, "Economy flusher did not stop in time.");
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    // ---------- Public API ----------
+
+    @Override
+    public long getBalance(UUID playerId) throws SQLException {
+        Account acc = accounts.get(playerId);
+        if (acc != null)
+            return acc.balance;
+        return delegate.getBalance(playerId);
+    }
+
+    @Override
+    public UuidLongMap getBalances(Collection<UUID> playerIds) throws SQLException {
+        UuidLongMap balances = new UuidLongMap(playerIds.size());
+        List<UUID> missing = new ArrayList<>();
+        for (UUID id : playerIds) {
+            Account acc = accounts.get(id);
+            if (acc != null)
+                balances.put(id, acc.balance);
+            else
+                missing.add(id);
+        }
+
+        if (!missing.isEmpty()) {
+            UuidLongMap loaded = delegate.getBalances(missing);
+            loaded.forEach(balances::put);
+        }
+        return balances;
+    }
+
+    @Override
+    public long pay(UUID from, UUID to, long amount) throws SQLException {
+        if (amount <= 0)
+            throw new IllegalArgumentException("amount must be > 0");
+
+        if (from == null || to == null)
+            throw new IllegalArgumentException("from/to must not be null");
+
+        if (from.equals(to))
+            throw new IllegalArgumentException("cannot pay yourself");
+
+        Account sender = accounts.get(from);
+        Account receiver = accounts.get(to);
+
+        // Sender not in memory: the DB has to check the funds
+        if (sender == null) {
+            return writeThrough(List.of(from, to), cached -> {
+                // queued debits of the sender (e.g. from before it was unloaded) count for the funds check
+                flushFor(List.of(from));
+                long bal = delegate.pay(from, to, amount);
+                Account s = cached.get(from);   // loaded in the meantime
+                if (s != null) {
+                    bal = s.balance -= amount;
+                    fire(from, bal);
+                }
+                Account r = cached.get(to);
+                if (r != null) {
+                    r.balance += amount;
+                    fire(to, r.balance);
+                }
+                return bal;
+            });
+        }
+
+        // lock both wallets in a fixed order, so two opposite payments can't deadlock
+        Account first = sender, second = receiver;
+        if (receiver != null && to.compareTo(from) < 0) {
+            first = receiver;
+            second = sender;
+        }
+
+        first.lock.lock();
+        try {
+            if (second != null)
+                second.lock.lock();
+            try {
+                if (sender.available() < amount)
+                    throw new SQLException("INSUFFICIENT_FUNDS");
+
+                sender.balance -= amount;
+                fire(from, sender.balance);
+                if (receiver != null) {
+                    receiver.balance += amount;
+                    fire(to, receiver.balance);
+                }
+
+                enqueue(new PendingTransfer(from, to, from, to, amount, Transfer.TransferReason.PLAYER_PAYMENT, UUID.randomUUID()));
+                return sender.balance;
+            }
+            finally {
+                if (second != null)
+                    second.lock.unlock();
+            }
+        }
+        finally {
+            first.lock.unlock();
+            // the credit reaches the DB without a cached copy of the receiver
+            if (receiver == null)
+                afterUncachedWrite(to, null);
+        }
+    }
+
+    @Override
+    public long claimOnce(UUID playerId, UUID claimId, long amount, String source) throws SQLException {
+        // Idempotency lives in econ_claim; the credit goes straight to the DB, so the cache
+        // only has to follow it (no flush needed, pending deltas stay valid)
+        return writeThrough(List.of(playerId), cached -> {
+            Account acc = cached.get(playerId);
+            if (acc == null)
+                return delegate.claimOnce(playerId, claimId, amount, source);
+
+            PgEconomy.ClaimResult result = delegate.claim(playerId, claimId, amount, source);
+            if (result.credited()) {
+                acc.balance += amount;
+                fire(playerId, acc.balance);
+            }
+            return acc.balance;
+        });
+    }
+
+    @Override
+    public long mint(UUID sender, UUID to, long amount, UUID corrId) throws SQLException {
+        if (amount <= 0) throw new IllegalArgumentException("amount must be > 0");
+
+        Account acc = accounts.get(to);
+        if (acc == null) {
+            return writeThrough(List.of(to), cached -> {
+                long bal = delegate.mint(sender, to, amount, corrId);
+                Account loaded = cached.get(to);
+                if (loaded != null) {
+                    bal = loaded.balance += amount;
+                    fire(to, bal);
+                }
+                return bal;
+            });
+        }
+
+        acc.lock.lock();
+        try {
+            acc.balance += amount;
+            fire(to, acc.balance);
+            enqueue(new PendingTransfer(sender, to, null, to, amount, Transfer.TransferReason.ADMIN_MINT, corrId));
+            return acc.balance;
+        }
+        finally {
+            acc.lock.unlock();
+        }
+    }
+
+    @Override
+    public long burn(UUID sender, UUID from, long amount, UUID corrId) throws SQLException {
+        if (amount <= 0) throw new IllegalArgumentException("amount must be > 0");
+
+        Account acc = accounts.get(from);
+        if (acc == null) {
+            return writeThrough(List.of(from), cached -> {
+                flushFor(List.of(from));
+                long bal = delegate.burn(sender, from, amount, corrId);
+                Account loaded = cached.get(from);
+                if (loaded != null) {
+                    bal = loaded.balance -= amount;
+                    fire(from, bal);
+                }
+                return bal;
+            });
+        }
+
+        acc.lock.lock();
+        try {
+            if (acc.available() < amount)
+                throw new SQLException("INSUFFICIENT_FUNDS");
+            acc.balance -= amount;
+            fire(from, acc.balance);
+            enqueue(new PendingTransfer(from, null, from, null, amount, Transfer.TransferReason.ADMIN_BURN, corrId));
+            return acc.balance;
+        }
+        finally {
+            acc.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<PostingResult> settleBatch(List<Posting> postings) throws SQLException {
+        // hold all cached wallets of the batch, so no in-memory change slips between flush and settlement
+        List<UUID> wallets = new ArrayList<>(postings.size());
+        for (Posting p : postings)
+            wallets.add(p.playerId());
+
+        return writeThrough(wallets, cached -> {
+            flushFor(wallets);
+            List<PostingResult> results = delegate.settleBatch(postings);
+
+            // the last result per wallet carries its final balance
+            for (PostingResult r : results) {
+                Account acc = cached.get(r.posting().playerId());
+                if (acc != null)
+                    acc.balance = r.balance();
+            }
+            return results;
+        });
+    }
+
+    @Override
+    public UUID hold(UUID playerId, long amount, Duration ttl) throws SQLException {
+        // the DB checks the available balance, so it needs our pending debits; the lock keeps
+        // in-memory debits out until the hold is known here as well
+        return writeThrough(List.of(playerId), cached -> {
+            flushFor(List.of(playerId));
+            UUID holdId = delegate.hold(playerId, amount, ttl);
+            Account acc = cached.get(playerId);
+            if (acc != null) {
+                acc.holds.put(holdId, new PgEconomy.ActiveHold(holdId, amount, Instant.now().plus(ttl)));
+                holdOwners.put(holdId, playerId);
+            }
+            return holdId;
+        });
+    }
+
+    @Override
+    public long capture(UUID holdId, UUID to) throws SQLException {
+        // the amount is reserved, so the DB debit can't fail on pending in-memory debits: no flush needed
+        UUID knownHolder = holdOwners.get(holdId);
+        PgEconomy.CaptureResult[] captured = new PgEconomy.CaptureResult[1];
+        long balance = writeThrough(Arrays.asList(knownHolder, to), cached -> {
+            PgEconomy.CaptureResult result = captured[0] = delegate.captureHold(holdId, to);
+            holdOwners.remove(holdId);
+
+            // cached wallets follow the DB by the same delta (unflushed deltas stay valid)
+            long bal = result.balance();
+            Account holder = cached.get(result.holder());
+            if (holder != null) {
+                holder.holds.remove(holdId);
+                bal = holder.balance -= result.amount();
+                fire(result.holder(), bal);
+            }
+            Account receiver = to != null ? cached.get(to) : null;
+            if (receiver != null) {
+                receiver.balance += result.amount();
+                fire(to, receiver.balance);
+            }
+            return bal;
+        });
+
+        // holder was not cached when we started
+        if (knownHolder == null)
+            afterUncachedWrite(captured[0].holder(), null);
+        return balance;
+    }
+
+    @Override
+    public boolean release(UUID holdId) throws SQLException {
+        boolean released = delegate.release(holdId);
+        UUID owner = holdOwners.remove(holdId);
+        Account acc = owner != null ? accounts.get(owner) : null;
+        if (acc != null) {
+            acc.lock.lock();
+            try {
+                acc.holds.remove(holdId);
+            }
+            finally {
+                acc.lock.unlock();
+            }
+        }
+        return released;
+    }
+
+    @Override
+    public Transfer[] getTransfers(UUID playerId, int limit, int offset) throws SQLException {
+        flushFor(List.of(playerId));
+        return delegate.getTransfers(playerId, limit, offset);
+    }
+
+    @Override
+    public TransferCursor forEachTransfer(UUID playerId, TransferCursor after, int limit,
+                                          Consumer<? super Transfer> action) throws SQLException {
+        flushFor(List.of(playerId));
+        return delegate.forEachTransfer(playerId, after, limit, action);
+    }
+
+    // ---------- Write-behind ----------
+
+    /** Writes all pending changes to the DB. Blocks until done; throws if a batch could not be persisted. */
+    public void flush() throws SQLException {
+        flushLock.lock();
+        try {
+            while (true) {
+                List<PendingTransfer> batch = new ArrayList<>(Math.min(maxBatch, 64));
+                PendingTransfer p;
+                while (batch.size() < maxBatch && (p = retry.pollFirst()) != null)
+                    batch.add(p);
+                while (batch.size() < maxBatch && (p = pending.poll()) != null)
+                    batch.add(p);
+
+                if (batch.isEmpty())
+                    return;
+
+                long start = System.nanoTime();
+                try {
+                    writeBatch(batch);
+                    FLUSH.stop(start);
+                    headAttempts = 0;
+                    dequeued(batch);
+                }
+                catch (SQLException | RuntimeException e) {
+                    FLUSH_RETRIES.increment();
+                    int unwritten = 0;
+                    if (isDataError(e) || ++headAttempts >= MAX_FLUSH_ATTEMPTS) {
+                        // one bad transfer must not hold back every other wallet: split down to it
+                        unwritten = isolate(batch, 0, batch.size(), e);
+                        headAttempts = 0;
+                        if (unwritten < 0)
+                            continue;
+                    }
+                    // keep order: the unwritten rest goes back in front of everything else
+                    for (int i = batch.size() - 1; i >= unwritten; i--)
+                        retry.addFirst(batch.get(i));
+                    throw e;
+                }
+            }
+        }
+        finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes if one of the wallets has queued transfers, so their deltas are in the DB; otherwise
+     * returns right away, without waiting for the flush lock or anybody else's deltas.
+     */
+    private void flushFor(Collection<UUID> wallets) throws SQLException {
+        for (UUID id : wallets) {
+            if (id != null && queued.containsKey(id)) {
+                flush();
+                return;
+            }
+        }
+    }
+
+    /** Queues a transfer for the flusher; counted for its wallets before it becomes visible. */
+    private void enqueue(PendingTransfer p) {
+        for (UUID id : p.parties())
+            queued.merge(id, 1, Integer::sum);
+        pending.add(p);
+    }
+
+    /** Transfers that are written or dropped: no longer queued for their wallets. */
+    private void dequeued(List<PendingTransfer> transfers) {
+        for (PendingTransfer p : transfers) {
+            for (UUID id : p.parties())
+                queued.computeIfPresent(id, (k, n) -> n == 1 ? null : n - 1);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        }
+        catch (Exception e) {
+            ChronaLog.error(log, ChronaMarkers.ECON, e, "Economy write-behind flush failed ({} pending)", retry.size());
+        }
+    }
+
+    /**
+     * Writes batch[lo, hi) that failed with the given error in halves, until the failing transfers are
+     * single ones; those are dropped if the error is about their data.
+     * @return -1 if the range is done, else the index from which on nothing was written (transient error)
+     */
+    private int isolate(List<PendingTransfer> batch, int lo, int hi, Exception failure) {
+        if (hi - lo == 1) {
+            if (!isDataError(failure))
+                return lo;
+            deadLetter(batch.get(lo), failure);
+            return -1;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        int unwritten = writeOrIsolate(batch, lo, mid);
+        return unwritten >= 0 ? unwritten : writeOrIsolate(batch, mid, hi);
+    }
+
+    private int writeOrIsolate(List<PendingTransfer> batch, int lo, int hi) {
+        try {
+            writeBatch(batch.subList(lo, hi));
+            dequeued(batch.subList(lo, hi));
+            return -1;
+        }
+        catch (SQLException | RuntimeException e) {
+            return isolate(batch, lo, hi, e);
+        }
+    }
+
+    /**
+     * Constraint/data errors (class 22, 23), insufficient funds / inactive hold raised by the econ
+     * functions (EC001, EC002; e.g. the debit of a wallet that became hot while cached) and bugs
+     * binding a row won't go away by retrying.
+     */
+    private static boolean isDataError(Throwable e) {
+        if (e instanceof RuntimeException)
+            return true;
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql) {
+                for (SQLException s = sql; s != null; s = s.getNextException()) {
+                    String state = s.getSQLState();
+                    if (state != null && (state.startsWith("22") || state.startsWith("23")
+                            || state.equals("EC001") || state.equals("EC002")))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Drops a transfer that can't be persisted; cached wallets involved are re-read from the DB. */
+    private void deadLetter(PendingTransfer p, Exception cause) {
+        DEAD_LETTERS.increment();
+        dequeued(List.of(p));
+        log.error(ChronaMarkers.AUDIT, "Dropped unpersistable transfer {} ({} -> {}, amount {}, reason {}, corr {}): {}",
+                p.transferId(), p.from(), p.to(), p.amount(), p.reason().value(), p.corrId(), cause.getMessage());
+
+        // the cache already applied it; the flusher thread holds no wallet locks, so it re-reads there
+        for (UUID id : Arrays.asList(p.debit(), p.credit())) {
+            if (id == null || !accounts.containsKey(id))
+                continue;
+            try {
+                flusher.execute(() -> afterUncachedWrite(id, null));
+            }
+            catch (RejectedExecutionException e) {
+                log.warn(ChronaMarkers.ECON, "Wallet {} may be off until it is loaded again.", id);
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingTransfer> batch) throws SQLException {
+        // aggregate per wallet; sorted like econ_pay, so the flush and payments lock rows in the same order
+        Map<UUID, Long> deltas = new TreeMap<>(PgEconomy.PG_ORDER);
+        for (PendingTransfer p : batch) {
+            if (p.debit() != null)
+                deltas.merge(p.debit(), -p.amount(), Long::sum);
+            if (p.credit() != null)
+                deltas.merge(p.credit(), p.amount(), Long::sum);
+        }
+
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                List<Map.Entry<UUID, Long>> hot = new ArrayList<>();
+                try (PreparedStatement ps = c.prepareStatement(
+                        "insert into wallet (player_id, balance, version) values (?, ?, 1) " +
+                                "on conflict (player_id) do update " +
+                                "set balance = wallet.balance + excluded.balance, version = wallet.version + 1, updated_at = now()")) {
+                    for (var e : deltas.entrySet()) {
+                        if (e.getValue() == 0)
+                            continue;
+                        if (delegate.isHotAccount(e.getKey())) {
+                            hot.add(e);
+                            continue;
+                        }
+                        ps.setObject(1, e.getKey());
+                        ps.setLong(2, e.getValue());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+
+                // hot accounts last (V9 lock order); the helpers put the delta on a shard, not on the wallet row
+                for (var e : hot) {
+                    try (PreparedStatement ps = c.prepareStatement(
+                            e.getValue() > 0 ? "select econ_credit(?, ?)" : "select econ_debit(?, ?)")) {
+                        ps.setObject(1, e.getKey());
+                        ps.setLong(2, Math.abs(e.getValue()));
+                        ps.executeQuery().close();
+                    }
+                }
+
+                try (PreparedStatement ps = c.prepareStatement(
+                        "insert into econ_transfer (transfer_id, from_player, to_player, amount, reason, corr_id) " +
+                                "values (?, ?, ?, ?, ?, ?)")) {
+                    for (PendingTransfer p : batch) {
+                        ps.setObject(1, p.transferId());
+                        if (p.from() == null) ps.setNull(2, Types.OTHER); else ps.setObject(2, p.from());
+                        if (p.to() == null) ps.setNull(3, Types.OTHER); else ps.setObject(3, p.to());
+                        ps.setLong(4, p.amount());
+                        ps.setString(5, p.reason().value());
+                        if (p.corrId() == null) ps.setNull(6, Types.OTHER); else ps.setObject(6, p.corrId());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+
+                c.commit();
+            }
+            catch (Exception e) {
+                c.rollback();
+                throw e;
+            }
+        }
+
+        // cached wallets already reported their change; the others only now have their new balance
+        if (listener != null) {
+            List<UUID> uncached = new ArrayList<>();
+            for (UUID id : deltas.keySet()) {
+                if (!accounts.containsKey(id))
+                    uncached.add(id);
+            }
+            // the batch is committed: a failed read must not send it back into the retry queue
+            try {
+                if (!uncached.isEmpty())
+                    delegate.getBalances(uncached).forEach(this::fire);
+            }
+            catch (SQLException e) {
+                ChronaLog.error(log, ChronaMarkers.ECON, e, "Failed to read balances after flush");
+            }
+        }
+    }
+
+    private void fire(UUID playerId, long balance) {
+        BalanceListener l = listener;
+        if (l != null)
+            l.balanceChanged(playerId, balance);
+    }
+
+    // ---------- Cache consistency ----------
+
+    @FunctionalInterface
+    private interface LockedWrite<T> {
+        /** @param cached the wallets of the write that are cached, all locked */
+        T run(Map<UUID, Account> cached) throws SQLException;
+    }
+
+    /**
+     * Runs a write the delegate commits itself. Wallets cached at this point stay locked across the DB
+     * call and the in-memory update; the others are handled by {@link #afterUncachedWrite}.
+     */
+    private <T> T writeThrough(Collection<UUID> wallets, LockedWrite<T> write) throws SQLException {
+        // fixed order (like pay), so two writes on the same wallets can't deadlock
+        TreeSet<UUID> ids = new TreeSet<>();
+        for (UUID id : wallets) {
+            if (id != null)
+                ids.add(id);
+        }
+
+        Map<UUID, Account> locked = new HashMap<>();
+        try {
+            for (UUID id : ids) {
+                Account acc = accounts.get(id);
+                if (acc == null)
+                    continue;
+                acc.lock.lock();
+                locked.put(id, acc);
+            }
+            return write.run(locked);
+        }
+        finally {
+            for (Account acc : locked.values())
+                acc.lock.unlock();
+            for (UUID id : ids)
+                afterUncachedWrite(id, locked.get(id));
+        }
+    }
+
+    /**
+     * Call after a DB write on a wallet whose cached copy (if any) was not updated under its lock.
+     * Bumps the wallet's stripe for a {@link #load} in progress, and re-reads a copy that was loaded
+     * in the meantime. A copy that can't be re-read is evicted, so the DB decides from then on.
+     *
+     * @param followed the cached copy the write did update (null if none)
+     */
+    private void afterUncachedWrite(UUID playerId, Account followed) {
+        if (followed == null)
+            uncachedWrites.incrementAndGet(stripe(playerId));
+
+        Account now = accounts.get(playerId);
+        if (now == null || now == followed)
+            return;
+        try {
+            reread(playerId, now);
+        }
+        catch (SQLException | RuntimeException e) {
+            ChronaLog.error(log, ChronaMarkers.ECON, e, "Failed to re-read wallet {}, evicting it from the cache", playerId);
+            unload(playerId);
+        }
+    }
+
+    /** Sets balance and holds of a cached wallet to the DB values; pending deltas are flushed first. */
+    private void reread(UUID playerId, Account acc) throws SQLException {
+        acc.lock.lock();
+        try {
+            flushFor(List.of(playerId));
+            acc.balance = delegate.getBalance(playerId);
+            acc.holds.keySet().forEach(holdOwners::remove);
+            acc.holds.clear();
+            for (PgEconomy.ActiveHold h : delegate.activeHolds(playerId)) {
+                acc.holds.put(h.holdId(), h);
+                if (accounts.get(playerId) == acc)
+                    holdOwners.put(h.holdId(), playerId);
+            }
+            fire(playerId, acc.balance);
+        }
+        finally {
+            acc.lock.unlock();
+        }
+    }
+
+    private static int stripe(UUID playerId) {
+        return playerId.hashCode() & (WRITE_STRIPES - 1);
+    }
+
+    // ---------- Internals ----------
+
+    /** In-memory wallet. balance is written under lock, read lock-free. */
+    private static final class Account {
+        final ReentrantLock lock = new ReentrantLock();
+        volatile long balance;
+        final Map<UUID, PgEconomy.ActiveHold> holds = new HashMap<>();   // guarded by lock
+
+        Account(long balance) {
+            this.balance = balance;
+        }
+
+        /** Balance minus unexpired holds; lock must be held. Expired holds are dropped on the way. */
+        long available() {
+            long available = balance;
+            if (holds.isEmpty())
+                return available;
+
+            Instant now = Instant.now();
+            var it = holds.values().iterator();
+            while (it.hasNext()) {
+                PgEconomy.ActiveHold h = it.next();
+                if (h.expiresAt().isAfter(now))
+                    available -= h.amount();
+                else
+                    it.remove();
+            }
+            return available;
+        }
+    }
+
+    /**
+     * Ledger row waiting for the flusher.
+     *
+     * @param from   from_player of the ledger row
+     * @param to     to_player of the ledger row
+     * @param debit  wallet to decrease (null if none, e.g. mint)
+     * @param credit wallet to increase (null if none, e.g. burn)
+     */
+    private record PendingTransfer(UUID from, UUID to, UUID debit, UUID credit, long amount,
+                                   Transfer.TransferReason reason, UUID corrId, UUID transferId) {
+        PendingTransfer(UUID from, UUID to, UUID debit, UUID credit, long amount,
+                        Transfer.TransferReason reason, UUID corrId) {
+            this(from, to, debit, credit, amount, reason, corrId, UUID.randomUUID());
+        }
+
+        /** from and to, without nulls (debit/credit are always one of them). */
+        List<UUID> parties() {
+            if (from == null)
+                return to == null ? List.of() : List.of(to);
+            return to == null || to.equals(from) ? List.of(from) : List.of(from, to);
+        }
+    }
+}
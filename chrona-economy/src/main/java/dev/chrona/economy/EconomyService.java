@@ -1,12 +1,24 @@
 package dev.chrona.economy;
 
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface EconomyService {
 
     long getBalance(UUID playerId) throws SQLException;
 
+    /** Reads the balances of many players at once (e.g. for scoreboards / tab list).
+     *
+     * @param playerIds Player UUIDs
+     * @return Balance per player; players without a wallet are absent (read them with a default of 0)
+     * @throws SQLException on DB error
+     */
+    UuidLongMap getBalances(Collection<UUID> playerIds) throws SQLException;
+
     /** Transfer amount from one player to another, returns new balance of sender
      *
      * @param from Sender player UUID
@@ -50,5 +62,55 @@ public interface EconomyService {
      */
     long burn(UUID sender, UUID from, long amount, UUID corrId) throws SQLException;
 
+    /** Applies many credits and debits in one transaction (event rewards, job payouts, bulk mints).
+     * Postings are applied in list order; a debit that would make a wallet negative is rejected
+     * without affecting the others.
+     *
+     * @param postings Postings to apply
+     * @return One result per posting, same order
+     * @throws SQLException on DB error (nothing is applied then)
+     */
+    List<PostingResult> settleBatch(List<Posting> postings) throws SQLException;
+
+    /** Reserves an amount for a later {@link #capture} (trades, market orders). Only placing the hold
+     * locks the wallet, briefly; until capture, release or expiry the amount is not available for debits.
+     *
+     * @param playerId Player UUID
+     * @param amount Amount to reserve (must be > 0)
+     * @param ttl How long the hold stays active if neither captured nor released
+     * @return Hold ID
+     * @throws SQLException on DB error or INSUFFICIENT_FUNDS if the available balance does not cover it
+     */
+    UUID hold(UUID playerId, long amount, Duration ttl) throws SQLException;
+
+    /** Captures an active hold: debits the held amount and credits it to the receiver.
+     *
+     * @param holdId Hold ID returned by {@link #hold}
+     * @param to Receiver player UUID, or null if the amount leaves circulation (fees, NPC shops)
+     * @return New balance of the holder
+     * @throws SQLException on DB error or HOLD_NOT_ACTIVE if it was captured, released or expired
+     */
+    long capture(UUID holdId, UUID to) throws SQLException;
+
+    /** Releases an active hold without moving money.
+     *
+     * @param holdId Hold ID returned by {@link #hold}
+     * @return false if the hold was not active anymore
+     * @throws SQLException on DB error
+     */
+    boolean release(UUID holdId) throws SQLException;
+
     Transfer[] getTransfers(UUID playerId, int limit, int offset) throws SQLException;
+
+    /** Streams one page of a player's transfer history (newest first) to the given action.
+     * Uses keyset pagination, so deep pages cost the same as the first one.
+     *
+     * @param playerId Player UUID (sender or receiver)
+     * @param after Cursor returned by the previous page, or null for the first page
+     * @param limit Max. number of transfers in this page (must be > 0)
+     * @param action Receives the transfers in order
+     * @return Cursor for the next page, or null if there are no more transfers
+     * @throws SQLException on DB error
+     */
+    TransferCursor forEachTransfer(UUID playerId, TransferCursor after, int limit, Consumer<? super Transfer> action) throws SQLException;
 }
@@ -0,0 +1,309 @@
+package dev.chrona.economy;
+
+import dev.chrona.common.log.ChronaLog;
+import dev.chrona.common.log.ChronaMarkers;
+import org.slf4j.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory top-N of wallet balances for /baltop, sidebars etc.
+ * <p>
+ * Seeded from Postgres, then kept up to date through {@link BalanceListener} events (register it on
+ * {@link PgEconomy} / {@link CachedEconomy}). The index tracks more entries than it serves, and
+ * remembers a floor: no untracked wallet has a higher balance. Entries below the floor may be out of
+ * order, so only the part above it is served; if that part becomes shorter than the served size,
+ * the next {@link #run()} re-seeds. Periodic re-seeds also correct any drift.
+ * <p>
+ * Entries are kept sorted (balance desc, then player_id), rank lookups are a binary search.
+ */
+public final class Leaderboard implements BalanceListener, Runnable {
+
+    private static final Logger log = ChronaLog.get(Leaderboard.class);
+
+    /** One row of the leaderboard; rank starts at 1. */
+    public record Entry(int rank, UUID playerId, long balance) {}
+
+    private final DataSource ds;
+    private final int size;
+    private final int capacity;
+    private final long reseedNanos;
+    private final Predicate<UUID> excluded;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private UUID[] ids;
+    private long[] balances;
+    private int count;
+    private UuidLongMap index;                 // tracked player -> balance
+    private long floor = Long.MIN_VALUE;       // upper bound of all untracked balances
+    private boolean seeded;
+    private boolean stale;
+    private long seededAt;
+    private UuidLongMap sinceSeed;             // changes while a seed query runs
+
+    /**
+     * @param ds             Economy data source
+     * @param size           Number of ranks served
+     * @param reseedInterval Full re-seed at least this often
+     * @param excluded       Wallets that never show up (system accounts)
+     */
+    public Leaderboard(DataSource ds, int size, Duration reseedInterval, Predicate<UUID> excluded) {
+        this.ds = Objects.requireNonNull(ds, "dataSource");
+        this.size = Math.max(1, size);
+        this.capacity = this.size * 2;
+        this.reseedNanos = reseedInterval.toNanos();
+        this.excluded = Objects.requireNonNull(excluded, "excluded");
+        this.ids = new UUID[capacity + 1];
+        this.balances = new long[capacity + 1];
+        this.index = new UuidLongMap(capacity);
+    }
+
+    /** Re-seeds if never seeded, incomplete, or older than the re-seed interval. Meant for an async repeating task. */
+    @Override
+    public void run() {
+        boolean due;
+        lock.lock();
+        try {
+            due = !seeded || stale || System.nanoTime() - seededAt >= reseedNanos;
+        }
+        finally {
+            lock.unlock();
+        }
+        if (!due)
+            return;
+
+        try {
+            seed();
+        }
+        catch (SQLException e) {
+            ChronaLog.error(log, ChronaMarkers.ECON, e, "Leaderboard seed failed");
+        }
+    }
+
+    /**
+     * Rebuilds the index from the wallet table. Changes reported while the query runs are applied afterwards.
+     * @throws SQLException on DB error
+     */
+    public void seed() throws SQLException {
+        lock.lock();
+        try {
+            sinceSeed = new UuidLongMap();
+        }
+        finally {
+            lock.unlock();
+        }
+
+        UUID[] newIds = new UUID[capacity + 1];
+        long[] newBalances = new long[capacity + 1];
+        UuidLongMap newIndex = new UuidLongMap(capacity);
+        int n = 0, rows = 0;
+        long lowest = Long.MIN_VALUE;
+        try (Connection c = ds.getConnection()) {
+            c.setReadOnly(true);
+            // hot accounts are system wallets, everything else has its full balance in the wallet row
+            try (PreparedStatement ps = c.prepareStatement("""
+                    select w.player_id, w.balance
+                    from wallet w
+                    where not exists (select 1 from econ_hot_account h where h.player_id = w.player_id)
+                    order by w.balance desc, w.player_id
+                    limit ?
+                 """)) {
+                ps.setInt(1, capacity);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        UUID id = (UUID) rs.getObject(1);
+                        lowest = rs.getLong(2);
+                        rows++;
+                        if (excluded.test(id))
+                            continue;
+                        newIds[n] = id;
+                        newBalances[n] = lowest;
+                        newIndex.put(id, newBalances[n]);
+                        n++;
+                    }
+                }
+            }
+        }
+        catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                sinceSeed = null;
+            }
+            finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            ids = newIds;
+            balances = newBalances;
+            index = newIndex;
+            count = n;
+            floor = rows < capacity ? Long.MIN_VALUE : lowest;
+            seeded = true;
+            stale = false;
+            seededAt = System.nanoTime();
+
+            UuidLongMap changes = sinceSeed;
+            sinceSeed = null;
+            changes.forEach(this::update);
+        }
+        finally {
+            lock.unlock();
+        }
+        log.debug(ChronaMarkers.ECON, "Leaderboard seeded with {} wallet(s).", n);
+    }
+
+    @Override
+    public void balanceChanged(UUID playerId, long balance) {
+        if (excluded.test(playerId))
+            return;
+
+        lock.lock();
+        try {
+            if (sinceSeed != null)
+                sinceSeed.put(playerId, balance);
+            if (seeded)
+                update(playerId, balance);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the first n ranks (at most the served size; fewer if the index is incomplete).
+     * @param n Number of entries
+     * @return Entries in rank order
+     */
+    public List<Entry> top(int n) {
+        lock.lock();
+        try {
+            int limit = Math.min(Math.min(n, size), validCount());
+            List<Entry> out = new ArrayList<>(Math.max(0, limit));
+            for (int i = 0; i < limit; i++)
+                out.add(new Entry(i + 1, ids[i], balances[i]));
+            return out;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rank of a player, 1-based.
+     * @param playerId Player to look up
+     * @return Rank, or -1 if the player is not within the served ranks
+     */
+    public int rankOf(UUID playerId) {
+        lock.lock();
+        try {
+            if (!index.containsKey(playerId))
+                return -1;
+            int pos = position(index.get(playerId, 0L), playerId);
+            return pos >= 0 && pos < Math.min(size, validCount()) ? pos + 1 : -1;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /** Number of ranks served. */
+    public int size() {
+        return size;
+    }
+
+    // ---------- Internals ----------
+
+    /** Moves / inserts / drops one player; lock must be held. */
+    private void update(UUID playerId, long balance) {
+        if (index.containsKey(playerId)) {
+            int pos = position(index.get(playerId, 0L), playerId);
+            if (pos >= 0)
+                removeAt(pos);
+            index.remove(playerId);
+        }
+
+        // below the floor an untracked wallet could be ahead of it -> leave it out
+        if (balance >= floor) {
+            int pos = position(balance, playerId);
+            insertAt(-pos - 1, playerId, balance);
+            index.put(playerId, balance);
+
+            if (count > capacity) {
+                count--;
+                floor = Math.max(floor, balances[count]);
+                index.remove(ids[count]);
+                ids[count] = null;
+            }
+        }
+
+        if (floor != Long.MIN_VALUE && validCount() < size)
+            stale = true;
+    }
+
+    /** Number of leading entries at or above the floor (the reliable part). */
+    private int validCount() {
+        if (floor == Long.MIN_VALUE)
+            return count;
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (balances[mid] >= floor)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /** Binary search for (balance, id); returns its index or -(insertion point) - 1. */
+    private int position(long balance, UUID playerId) {
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(balances[mid], ids[mid], balance, playerId);
+            if (cmp < 0)
+                lo = mid + 1;
+            else if (cmp > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    /** Leaderboard order: balance descending, then player_id in Postgres order (same as the seed query). */
+    private static int compare(long balanceA, UUID a, long balanceB, UUID b) {
+        int c = Long.compare(balanceB, balanceA);
+        return c != 0 ? c : PgEconomy.PG_ORDER.compare(a, b);
+    }
+
+    private void insertAt(int pos, UUID playerId, long balance) {
+        System.arraycopy(ids, pos, ids, pos + 1, count - pos);
+        System.arraycopy(balances, pos, balances, pos + 1, count - pos);
+        ids[pos] = playerId;
+        balances[pos] = balance;
+        count++;
+    }
+
+    private void removeAt(int pos) {
+        System.arraycopy(ids, pos + 1, ids, pos, count - pos - 1);
+        System.arraycopy(balances, pos + 1, balances, pos, count - pos - 1);
+        count--;
+        ids[count] = null;
+    }
+}
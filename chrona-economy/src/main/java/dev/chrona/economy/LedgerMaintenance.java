@@ -0,0 +1,179 @@
+package dev.chrona.economy;
+
+import dev.chrona.common.log.ChronaLog;
+import dev.chrona.common.log.ChronaMarkers;
+import org.slf4j.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Periodic upkeep of the economy ledger (see V7__econ_ledger_partitions.sql).
+ * <p>
+ * - creates the monthly econ_transfer partitions ahead of time
+ * - rolls the balance snapshot forward, so reconciliation only reads recent partitions
+ * - keeps only the newest snapshots
+ * - folds the shards of hot accounts and spreads them evenly again (V9)
+ * - deletes outbox rows older than the retention (V11)
+ * - marks expired holds as EXPIRED, in batches (V12)
+ * <p>
+ * Meant to run off the main thread, e.g. as an async repeating task.
+ */
+public final class LedgerMaintenance implements Runnable {
+
+    private static final Logger log = ChronaLog.get(LedgerMaintenance.class);
+
+    /** Holds per sweep statement; keeps each transaction short. */
+    private static final int HOLD_SWEEP_BATCH = 1000;
+
+    private final DataSource ds;
+    private final int monthsAhead;
+    private final Duration snapshotLag;
+    private final int keepSnapshots;
+    private final Duration outboxRetention;
+
+    /**
+     * @param ds            Economy data source
+     * @param monthsAhead   How many future monthly partitions should exist
+     * @param snapshotLag   Snapshots cover postings older than now() - lag (room for open transactions)
+     * @param keepSnapshots How many snapshots are kept (>= 1)
+     * @param outboxRetention How long econ_outbox rows are kept for listeners catching up
+     */
+    public LedgerMaintenance(DataSource ds, int monthsAhead, Duration snapshotLag, int keepSnapshots,
+                             Duration outboxRetention) {
+        this.ds = Objects.requireNonNull(ds, "dataSource");
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.snapshotLag = Objects.requireNonNull(snapshotLag, "snapshotLag");
+        this.keepSnapshots = Math.max(1, keepSnapshots);
+        this.outboxRetention = Objects.requireNonNull(outboxRetention, "outboxRetention");
+    }
+
+    @Override
+    public void run() {
+        try {
+            int created = ensurePartitions();
+            if (created > 0)
+                log.info(ChronaMarkers.ECON, "Created {} econ_transfer partition(s).", created);
+
+            int folded = foldHotAccounts();
+            if (folded > 0)
+                log.debug(ChronaMarkers.ECON, "Folded {} hot account(s).", folded);
+
+            long snapshotId = takeSnapshot();
+            int pruned = pruneSnapshots();
+            log.debug(ChronaMarkers.ECON, "Balance snapshot {} taken, {} old snapshot(s) removed.", snapshotId, pruned);
+
+            int purged = purgeOutbox();
+            log.debug(ChronaMarkers.ECON, "Purged {} outbox row(s).", purged);
+
+            int expired = sweepHolds();
+            if (expired > 0)
+                log.debug(ChronaMarkers.ECON, "Expired {} hold(s).", expired);
+        }
+        catch (SQLException e) {
+            ChronaLog.error(log, ChronaMarkers.ECON, e, "Ledger maintenance failed");
+        }
+    }
+
+    /** Creates missing partitions for the current and the next months; returns how many were created. */
+    public int ensurePartitions() throws SQLException {
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement("select econ_ensure_transfer_partitions(?)")) {
+            ps.setInt(1, monthsAhead);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /** Rebalances the shards of all hot accounts, one transaction per account; returns how many were folded. */
+    public int foldHotAccounts() throws SQLException {
+        List<UUID> hot = new ArrayList<>();
+        try (Connection c = ds.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement("select player_id from econ_hot_account order by player_id");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    hot.add(rs.getObject(1, UUID.class));
+            }
+
+            // autocommit: each call commits on its own and releases the account's shard locks
+            try (PreparedStatement ps = c.prepareStatement("select econ_fold_hot_account(?)")) {
+                for (UUID id : hot) {
+                    ps.setObject(1, id);
+                    ps.executeQuery().close();
+                }
+            }
+        }
+        return hot.size();
+    }
+
+    /** Rolls the balance snapshot forward; returns the id of the newest snapshot. */
+    public long takeSnapshot() throws SQLException {
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement("select econ_take_balance_snapshot(?::interval)")) {
+            ps.setString(1, snapshotLag.toSeconds() + " seconds");
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * Deletes all but the newest snapshots; returns how many were deleted. The base snapshot of a
+     * reconciliation run that is still RUNNING is kept, so a run spanning several calls can finish.
+     */
+    public int pruneSnapshots() throws SQLException {
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement("""
+                delete from econ_balance_snapshot
+                where snapshot_id not in (
+                    select snapshot_id from econ_balance_snapshot order by as_of desc limit ?
+                )
+                and snapshot_id not in (
+                    select snapshot_id from econ_reconcile_run
+                    where status = 'RUNNING' and snapshot_id is not null
+                )
+             """)) {
+            ps.setInt(1, keepSnapshots);
+            return ps.executeUpdate();
+        }
+    }
+
+    /** Deletes outbox rows older than the retention; returns how many were deleted. */
+    public int purgeOutbox() throws SQLException {
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "delete from econ_outbox where created_at < now() - ?::interval")) {
+            ps.setString(1, outboxRetention.toSeconds() + " seconds");
+            return ps.executeUpdate();
+        }
+    }
+
+    /** Marks expired holds as EXPIRED, one short transaction per batch; returns how many were marked. */
+    public int sweepHolds() throws SQLException {
+        int total = 0;
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement("select econ_sweep_holds(?)")) {
+            ps.setInt(1, HOLD_SWEEP_BATCH);
+            int swept;
+            do {
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    swept = rs.getInt(1);
+                }
+                total += swept;
+            } while (swept == HOLD_SWEEP_BATCH);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,316 @@
+package dev.chrona.economy;
+
+import dev.chrona.common.log.ChronaLog;
+import dev.chrona.common.log.ChronaMarkers;
+import org.slf4j.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Checks wallet balances (incl. hot-account shards) against the ledger (see V8__econ_reconcile.sql).
+ * <p>
+ * Expected balance = latest balance snapshot + all econ_posting rows since its as_of. Wallets are
+ * walked in player_id order, one chunk per read-only REPEATABLE READ transaction, so wallets and
+ * postings of a chunk come from the same MVCC snapshot and no row is locked. Postings are streamed
+ * with a server-side cursor and summed into a {@link UuidLongMap}.
+ * <p>
+ * Progress is checkpointed in econ_reconcile_run after every chunk; an interrupted run
+ * (restart, maxChunks reached) continues where it stopped on the next call. The base snapshot of
+ * a RUNNING run is exempt from {@link LedgerMaintenance#pruneSnapshots()}.
+ */
+public final class LedgerReconciler implements Runnable {
+
+    private static final Logger log = ChronaLog.get(LedgerReconciler.class);
+
+    /** Outcome of one {@link #reconcile()} call. finished == false means the run continues next time. */
+    public record Report(long runId, long checked, long drift, boolean finished) {}
+
+    /** A wallet whose balance does not match the ledger. */
+    public record Drift(UUID playerId, long walletBalance, long ledgerBalance) {
+        public long difference() {
+            return walletBalance - ledgerBalance;
+        }
+    }
+
+    private final DataSource ds;
+    private final int chunkSize;
+    private final int fetchSize;
+    private final int maxChunks;
+
+    /**
+     * @param ds        Economy data source
+     * @param chunkSize Wallets per chunk (one read transaction each)
+     * @param fetchSize Rows per cursor round-trip while streaming postings
+     * @param maxChunks Chunks per call before yielding; the run resumes on the next call
+     */
+    public LedgerReconciler(DataSource ds, int chunkSize, int fetchSize, int maxChunks) {
+        this.ds = Objects.requireNonNull(ds, "dataSource");
+        this.chunkSize = Math.max(1, chunkSize);
+        this.fetchSize = Math.max(1, fetchSize);
+        this.maxChunks = Math.max(1, maxChunks);
+    }
+
+    @Override
+    public void run() {
+        try {
+            Report report = reconcile();
+            if (report.finished())
+                log.info(ChronaMarkers.ECON, "Reconciliation run {} finished: {} wallet(s) checked, {} drift(s).",
+                        report.runId(), report.checked(), report.drift());
+            else
+                log.debug(ChronaMarkers.ECON, "Reconciliation run {} paused after {} wallet(s).",
+                        report.runId(), report.checked());
+        }
+        catch (SQLException e) {
+            ChronaLog.error(log, ChronaMarkers.ECON, e, "Ledger reconciliation failed");
+        }
+    }
+
+    /**
+     * Continues the open run (or starts a new one) for at most maxChunks chunks.
+     * @return Progress of the run after this call
+     * @throws SQLException on DB error
+     */
+    public Report reconcile() throws SQLException {
+        Run run = openRun();
+
+        for (int i = 0; i < maxChunks; i++) {
+            Chunk chunk = readChunk(run);
+            if (chunk.checked() == 0) {
+                finishRun(run);
+                return new Report(run.id, run.checked, run.drift, true);
+            }
+
+            for (Drift d : chunk.drift())
+                log.warn(ChronaMarkers.ECON, "Balance drift for {}: wallet={} ledger={} (diff {}), run {}",
+                        d.playerId(), d.walletBalance(), d.ledgerBalance(), d.difference(), run.id);
+
+            saveChunk(run, chunk);
+        }
+        return new Report(run.id, run.checked, run.drift, false);
+    }
+
+    // ---------- Internals ----------
+
+    /** Mutable view of an econ_reconcile_run row. */
+    private static final class Run {
+        final long id;
+        final Long snapshotId;
+        final OffsetDateTime snapshotAsOf;
+        UUID lastPlayer;
+        long checked;
+        long drift;
+
+        Run(long id, Long snapshotId, OffsetDateTime snapshotAsOf, UUID lastPlayer, long checked, long drift) {
+            this.id = id;
+            this.snapshotId = snapshotId;
+            this.snapshotAsOf = snapshotAsOf;
+            this.lastPlayer = lastPlayer;
+            this.checked = checked;
+            this.drift = drift;
+        }
+    }
+
+    private record Chunk(int checked, UUID lastPlayer, List<Drift> drift) {}
+
+    private Run openRun() throws SQLException {
+        try (Connection c = ds.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement("""
+                    select r.run_id, r.snapshot_id, r.snapshot_as_of, r.last_player, r.checked, r.drift_count,
+                           (r.snapshot_id is null or exists (
+                               select 1 from econ_balance_snapshot s where s.snapshot_id = r.snapshot_id)) as base_ok
+                    from econ_reconcile_run r
+                    where r.status = 'RUNNING'
+                    order by r.started_at desc
+                    limit 1
+                 """);
+                 ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    long runId = rs.getLong(1);
+                    if (rs.getBoolean(7)) {
+                        long snapshotId = rs.getLong(2);
+                        return new Run(runId, rs.wasNull() ? null : snapshotId,
+                                rs.getObject(3, OffsetDateTime.class), rs.getObject(4, UUID.class),
+                                rs.getLong(5), rs.getLong(6));
+                    }
+                    // base snapshot is gone (deleted by hand) -> results are no longer comparable
+                    try (PreparedStatement fail = c.prepareStatement(
+                            "update econ_reconcile_run set status = 'FAILED', finished_at = now() where run_id = ?")) {
+                        fail.setLong(1, runId);
+                        fail.executeUpdate();
+                    }
+                    log.warn(ChronaMarkers.ECON, "Reconciliation run {} lost its base snapshot, starting over.", runId);
+                }
+            }
+
+            try (PreparedStatement ps = c.prepareStatement("""
+                    insert into econ_reconcile_run (snapshot_id, snapshot_as_of)
+                    select s.snapshot_id, s.as_of
+                    from (select 1) one
+                    left join (select snapshot_id, as_of from econ_balance_snapshot order by as_of desc limit 1) s on true
+                    returning run_id, snapshot_id, snapshot_as_of
+                 """);
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                long snapshotId = rs.getLong(2);
+                return new Run(rs.getLong(1), rs.wasNull() ? null : snapshotId,
+                        rs.getObject(3, OffsetDateTime.class), null, 0, 0);
+            }
+        }
+    }
+
+    /** Reads the next wallets after run.lastPlayer and compares them with the ledger, without writing. */
+    private Chunk readChunk(Run run) throws SQLException {
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            c.setReadOnly(true);
+            c.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                String after = run.lastPlayer != null ? "player_id > ? and " : "";
+
+                UUID[] ids = new UUID[chunkSize];
+                long[] balances = new long[chunkSize];
+                int n = 0;
+                try (PreparedStatement ps = c.prepareStatement(
+                        "select player_id, balance from econ_wallet_balance " +
+                        (run.lastPlayer != null ? "where player_id > ? " : "") +
+                        "order by player_id limit ?")) {
+                    int i = 1;
+                    if (run.lastPlayer != null)
+                        ps.setObject(i++, run.lastPlayer);
+                    ps.setInt(i, chunkSize);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            ids[n] = rs.getObject(1, UUID.class);
+                            balances[n] = rs.getLong(2);
+                            n++;
+                        }
+                    }
+                }
+                if (n == 0) {
+                    c.commit();
+                    return new Chunk(0, run.lastPlayer, List.of());
+                }
+                UUID last = ids[n - 1];
+
+                UuidLongMap expected = new UuidLongMap(n);
+                if (run.snapshotId != null) {
+                    try (PreparedStatement ps = c.prepareStatement(
+                            "select player_id, balance from econ_balance_snapshot_entry " +
+                            "where snapshot_id = ? and " + after + "player_id <= ?")) {
+                        ps.setFetchSize(fetchSize);
+                        int i = 1;
+                        ps.setLong(i++, run.snapshotId);
+                        i = setRange(ps, i, run.lastPlayer, last);
+                        sumInto(ps, expected);
+                    }
+                }
+
+                try (PreparedStatement ps = c.prepareStatement(
+                        "select player_id, amount from econ_posting " +
+                        "where " + after + "player_id <= ?" +
+                        (run.snapshotAsOf != null ? " and created_at >= ?" : ""))) {
+                    ps.setFetchSize(fetchSize);
+                    int i = setRange(ps, 1, run.lastPlayer, last);
+                    if (run.snapshotAsOf != null)
+                        ps.setObject(i, run.snapshotAsOf, Types.TIMESTAMP_WITH_TIMEZONE);
+                    sumInto(ps, expected);
+                }
+                c.commit();
+
+                List<Drift> drift = new ArrayList<>();
+                for (int j = 0; j < n; j++) {
+                    long ledger = expected.get(ids[j], 0L);
+                    if (ledger != balances[j])
+                        drift.add(new Drift(ids[j], balances[j], ledger));
+                }
+                return new Chunk(n, last, drift);
+            }
+            catch (Exception e) {
+                c.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /** Stores the drift of a chunk and moves the checkpoint in one transaction. */
+    private void saveChunk(Run run, Chunk chunk) throws SQLException {
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                if (!chunk.drift().isEmpty()) {
+                    try (PreparedStatement ps = c.prepareStatement("""
+                            insert into econ_reconcile_drift (run_id, player_id, wallet_balance, ledger_balance)
+                            values (?,?,?,?)
+                            on conflict (run_id, player_id) do nothing
+                         """)) {
+                        for (Drift d : chunk.drift()) {
+                            ps.setLong(1, run.id);
+                            ps.setObject(2, d.playerId());
+                            ps.setLong(3, d.walletBalance());
+                            ps.setLong(4, d.ledgerBalance());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                try (PreparedStatement ps = c.prepareStatement("""
+                        update econ_reconcile_run
+                        set last_player = ?, checked = checked + ?, drift_count = drift_count + ?
+                        where run_id = ?
+                     """)) {
+                    ps.setObject(1, chunk.lastPlayer());
+                    ps.setLong(2, chunk.checked());
+                    ps.setLong(3, chunk.drift().size());
+                    ps.setLong(4, run.id);
+                    ps.executeUpdate();
+                }
+                c.commit();
+            }
+            catch (Exception e) {
+                c.rollback();
+                throw e;
+            }
+        }
+        run.lastPlayer = chunk.lastPlayer();
+        run.checked += chunk.checked();
+        run.drift += chunk.drift().size();
+    }
+
+    private void finishRun(Run run) throws SQLException {
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "update econ_reconcile_run set status = 'DONE', finished_at = now() where run_id = ?")) {
+            ps.setLong(1, run.id);
+            ps.executeUpdate();
+        }
+    }
+
+    /** Binds the (lastPlayer, last] player range; the lower bound is only present while resuming. */
+    private static int setRange(PreparedStatement ps, int i, UUID after, UUID last) throws SQLException {
+        if (after != null)
+            ps.setObject(i++, after);
+        ps.setObject(i++, last);
+        return i;
+    }
+
+    /** Streams (player_id, amount) rows and adds them to the map. */
+    private static void sumInto(PreparedStatement ps, UuidLongMap sums) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                UUID playerId = rs.getObject(1, UUID.class);
+                sums.add(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits(), rs.getLong(2));
+            }
+        }
+    }
+}
@@ -0,0 +1,568 @@
+package dev.chrona.economy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * {@link EconomyService} without a database, for benchmarks, tests and single-node test servers.
+ * <p>
+ * Balances live in {@link UuidLongMap}s behind a fixed set of lock stripes; operations on two wallets
+ * lock their stripes in index order. Durability comes from an append-only, memory-mapped journal
+ * ({@link MemoryJournal}) that is written before a change is applied and replayed on startup.
+ * <p>
+ * Same semantics as {@link PgEconomy}: claimOnce is idempotent per claim ID (across restarts too),
+ * mint and burn record their corrId but do not deduplicate it, debits check balance minus active holds.
+ * Transfer history is kept in memory as well.
+ */
+public final class MemoryEconomy implements EconomyService, AutoCloseable {
+
+    private static final int STRIPES = 64;
+
+    // journal record types
+    private static final byte REC_TRANSFER = 1;
+    private static final byte REC_CLAIM = 2;
+    private static final byte REC_HOLD = 3;
+    private static final byte REC_CAPTURE = 4;
+    private static final byte REC_RELEASE = 5;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Set<UUID> claims = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Hold> holds = new ConcurrentHashMap<>();
+    private final MemoryJournal journal;
+    // forces the journal every sync interval; null if every append is forced (or no journal)
+    private final ScheduledExecutorService syncer;
+    private volatile BalanceListener listener;
+
+    /** Pure in-memory instance, nothing survives a restart. */
+    public MemoryEconomy() {
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe();
+        this.journal = null;
+        this.syncer = null;
+    }
+
+    /** Journaled instance, forced to disk once per second; see {@link #MemoryEconomy(Path, Duration)}. */
+    public MemoryEconomy(Path journalFile) throws IOException {
+        this(journalFile, Duration.ofSeconds(1));
+    }
+
+    /**
+     * Journaled instance; replays the journal file before returning.
+     * <p>
+     * A change survives a crash of the process as soon as the call returns, a crash of the machine
+     * only once the journal is forced: with a zero syncInterval every change is forced before the call
+     * returns (one fsync per write), otherwise at most the last syncInterval of changes can be lost.
+     *
+     * @param journalFile  Journal file (created if missing)
+     * @param syncInterval Zero to force every write, else how often the journal is forced
+     * @throws IOException if the journal can't be opened or read
+     */
+    public MemoryEconomy(Path journalFile, Duration syncInterval) throws IOException {
+        if (syncInterval.isNegative())
+            throw new IllegalArgumentException("syncInterval must be >= 0");
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe();
+        this.journal = new MemoryJournal(journalFile, syncInterval.isZero());
+        journal.replay(this::replay);
+
+        if (syncInterval.isZero()) {
+            this.syncer = null;
+        }
+        else {
+            this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "chrona-econ-journal");
+                t.setDaemon(true);
+                return t;
+            });
+            long ms = Math.max(1L, syncInterval.toMillis());
+            syncer.scheduleWithFixedDelay(journal::force, ms, ms, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Registers the listener for balance changes (null to remove). */
+    public void setBalanceListener(BalanceListener listener) {
+        this.listener = listener;
+    }
+
+    /** Forces the journal to disk (it is forced on close in any case). */
+    public void sync() {
+        if (journal != null)
+            journal.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (syncer != null)
+            syncer.shutdownNow();
+        if (journal != null)
+            journal.close();
+    }
+
+    // ---------- Public API ----------
+
+    @Override
+    public long getBalance(UUID playerId) {
+        Stripe s = stripe(playerId);
+        s.lock.lock();
+        try {
+            return s.balances.get(playerId, 0L);
+        }
+        finally {
+            s.lock.unlock();
+        }
+    }
+
+    @Override
+    public UuidLongMap getBalances(Collection<UUID> playerIds) {
+        UuidLongMap balances = new UuidLongMap(playerIds.size());
+        for (UUID id : playerIds) {
+            Stripe s = stripe(id);
+            s.lock.lock();
+            try {
+                if (s.balances.containsKey(id))
+                    balances.put(id, s.balances.get(id, 0L));
+            }
+            finally {
+                s.lock.unlock();
+            }
+        }
+        return balances;
+    }
+
+    @Override
+    public long pay(UUID from, UUID to, long amount) throws SQLException {
+        if (amount <= 0)
+            throw new IllegalArgumentException("amount must be > 0");
+
+        if (from == null || to == null)
+            throw new IllegalArgumentException("from/to must not be null");
+
+        if (from.equals(to))
+            throw new IllegalArgumentException("cannot pay yourself");
+
+        int[] locked = lock(from, to);
+        try {
+            if (available(from) < amount)
+                throw new SQLException("INSUFFICIENT_FUNDS");
+
+            Transfer t = new Transfer(from, to, amount, Transfer.TransferReason.PLAYER_PAYMENT, UUID.randomUUID());
+            write(REC_TRANSFER, null, t);
+            apply(t);
+            return balanceOf(from);
+        }
+        finally {
+            unlock(locked);
+        }
+    }
+
+    @Override
+    public long claimOnce(UUID playerId, UUID claimId, long amount, String source) {
+        if (amount <= 0)
+            throw new IllegalArgumentException("amount must be > 0");
+        Objects.requireNonNull(claimId, "claimId");
+
+        Stripe s = stripe(playerId);
+        s.lock.lock();
+        try {
+            // already claimed: idempotent, current balance
+            if (!claims.add(claimId))
+                return s.balances.get(playerId, 0L);
+
+            Transfer t = new Transfer(null, playerId, amount, Transfer.TransferReason.CLAIM, null);
+            try {
+                write(REC_CLAIM, claimId, t);
+            }
+            catch (RuntimeException e) {
+                claims.remove(claimId);
+                throw e;
+            }
+            apply(t);
+            return s.balances.get(playerId, 0L);
+        }
+        finally {
+            s.lock.unlock();
+        }
+    }
+
+    @Override
+    public long mint(UUID from, UUID to, long amount, UUID corrId) {
+        if (amount <= 0) throw new IllegalArgumentException("amount must be > 0");
+
+        int[] locked = lock(from, to);
+        try {
+            Transfer t = new Transfer(from, to, amount, Transfer.TransferReason.ADMIN_MINT, corrId);
+            write(REC_TRANSFER, null, t);
+            apply(t);
+            return balanceOf(to);
+        }
+        finally {
+            unlock(locked);
+        }
+    }
+
+    @Override
+    public long burn(UUID sender, UUID from, long amount, UUID corrId) throws SQLException {
+        if (amount <= 0) throw new IllegalArgumentException("amount must be > 0");
+
+        int[] locked = lock(from);
+        try {
+            if (available(from) < amount)
+                throw new SQLException("INSUFFICIENT_FUNDS");
+
+            Transfer t = new Transfer(from, null, amount, Transfer.TransferReason.ADMIN_BURN, corrId);
+            write(REC_TRANSFER, null, t);
+            apply(t);
+            return balanceOf(from);
+        }
+        finally {
+            unlock(locked);
+        }
+    }
+
+    @Override
+    public List<PostingResult> settleBatch(List<Posting> postings) {
+        if (postings.isEmpty())
+            return List.of();
+
+        UUID[] ids = new UUID[postings.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = postings.get(i).playerId();
+
+        int[] locked = lock(ids);
+        try {
+            List<PostingResult> results = new ArrayList<>(postings.size());
+            for (Posting p : postings) {
+                if (!p.isCredit() && available(p.playerId()) + p.amount() < 0) {
+                    results.add(new PostingResult(p, false, balanceOf(p.playerId())));
+                    continue;
+                }
+
+                // credit: (null -> player), debit: (player -> null), like PgEconomy
+                Transfer t = p.isCredit()
+                        ? new Transfer(null, p.playerId(), p.amount(), p.reason(), p.corrId())
+                        : new Transfer(p.playerId(), null, -p.amount(), p.reason(), p.corrId());
+                write(REC_TRANSFER, null, t);
+                apply(t);
+                results.add(new PostingResult(p, true, balanceOf(p.playerId())));
+            }
+            return results;
+        }
+        finally {
+            unlock(locked);
+        }
+    }
+
+    @Override
+    public UUID hold(UUID playerId, long amount, Duration ttl) throws SQLException {
+        if (amount <= 0)
+            throw new IllegalArgumentException("amount must be > 0");
+        if (ttl.isNegative() || ttl.isZero())
+            throw new IllegalArgumentException("ttl must be > 0");
+
+        Stripe s = stripe(playerId);
+        s.lock.lock();
+        try {
+            if (available(playerId) < amount)
+                throw new SQLException("INSUFFICIENT_FUNDS");
+
+            Hold h = new Hold(UUID.randomUUID(), playerId, amount, System.currentTimeMillis() + ttl.toMillis());
+            if (journal != null) {
+                journal.append(REC_HOLD, 48, out -> {
+                    MemoryJournal.putUuid(out, h.holdId());
+                    MemoryJournal.putUuid(out, h.playerId());
+                    out.putLong(h.amount());
+                    out.putLong(h.expiresAt());
+                });
+            }
+            addHold(h);
+            return h.holdId();
+        }
+        finally {
+            s.lock.unlock();
+        }
+    }
+
+    @Override
+    public long capture(UUID holdId, UUID to) throws SQLException {
+        Hold h = holds.get(holdId);
+        if (h == null)
+            throw new SQLException("HOLD_NOT_ACTIVE");
+        if (h.playerId().equals(to))
+            throw new IllegalArgumentException("cannot capture to the holder");
+
+        int[] locked = lock(h.playerId(), to);
+        try {
+            if (h.expiresAt() <= System.currentTimeMillis() || holds.get(holdId) != h)
+                throw new SQLException("HOLD_NOT_ACTIVE");
+
+            Transfer t = new Transfer(h.playerId(), to, h.amount(), Transfer.TransferReason.HOLD_CAPTURE, holdId);
+            write(REC_CAPTURE, holdId, t);
+            removeHold(holdId);
+            apply(t);
+            return balanceOf(h.playerId());
+        }
+        finally {
+            unlock(locked);
+        }
+    }
+
+    @Override
+    public boolean release(UUID holdId) {
+        Hold h = holds.get(holdId);
+        if (h == null)
+            return false;
+
+        Stripe s = stripe(h.playerId());
+        s.lock.lock();
+        try {
+            if (holds.get(holdId) != h)
+                return false;
+            if (journal != null)
+                journal.append(REC_RELEASE, 16, out -> MemoryJournal.putUuid(out, holdId));
+            removeHold(holdId);
+            return true;
+        }
+        finally {
+            s.lock.unlock();
+        }
+    }
+
+    @Override
+    public Transfer[] getTransfers(UUID playerId, int limit, int offset) {
+        Stripe s = stripe(playerId);
+        s.lock.lock();
+        try {
+            List<Transfer> history = s.history.getOrDefault(playerId, List.of());
+            int from = history.size() - 1 - Math.max(0, offset);
+            int n = Math.max(0, Math.min(limit, from + 1));
+            Transfer[] out = new Transfer[n];
+            for (int i = 0; i < n; i++)
+                out[i] = history.get(from - i);
+            return out;
+        }
+        finally {
+            s.lock.unlock();
+        }
+    }
+
+    @Override
+    public TransferCursor forEachTransfer(UUID playerId, TransferCursor after, int limit,
+                                          Consumer<? super Transfer> action) {
+        if (limit <= 0)
+            throw new IllegalArgumentException("limit must be > 0");
+
+        // copy the page under the lock, run the action outside of it
+        List<Transfer> page = new ArrayList<>(Math.min(limit, 256));
+        Stripe s = stripe(playerId);
+        s.lock.lock();
+        try {
+            List<Transfer> history = s.history.getOrDefault(playerId, List.of());
+            int start = history.size() - 1;
+            if (after != null) {
+                // history is in append order (newest last): continue below the cursor's transfer
+                long ts = after.createdAt().toEpochMilli();
+                while (start >= 0 && !history.get(start).uuid().equals(after.transferId())
+                        && history.get(start).timestamp() >= ts)
+                    start--;
+                if (start >= 0 && history.get(start).uuid().equals(after.transferId()))
+                    start--;
+            }
+            for (int i = start; i >= 0 && page.size() < limit; i--)
+                page.add(history.get(i));
+        }
+        finally {
+            s.lock.unlock();
+        }
+
+        page.forEach(action);
+        if (page.size() < limit)
+            return null;
+        Transfer last = page.getLast();
+        return new TransferCursor(Instant.ofEpochMilli(last.timestamp()), last.uuid());
+    }
+
+    // ---------- Internals ----------
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final UuidLongMap balances = new UuidLongMap(256);
+        final Map<UUID, List<Hold>> holds = new HashMap<>();
+        final Map<UUID, List<Transfer>> history = new HashMap<>();
+    }
+
+    private record Hold(UUID holdId, UUID playerId, long amount, long expiresAt) {}
+
+    private Stripe stripe(UUID playerId) {
+        return stripes[index(playerId)];
+    }
+
+    private static int index(UUID playerId) {
+        long h = playerId.getMostSignificantBits() ^ playerId.getLeastSignificantBits();
+        h ^= h >>> 32;
+        h ^= h >>> 16;
+        return (int) h & (STRIPES - 1);
+    }
+
+    /** Locks the stripes of the given wallets in index order (nulls ignored); returns them for {@link #unlock}. */
+    private int[] lock(UUID... playerIds) {
+        int[] idx = new int[playerIds.length];
+        int n = 0;
+        for (UUID id : playerIds) {
+            if (id != null)
+                idx[n++] = index(id);
+        }
+        idx = Arrays.stream(idx, 0, n).sorted().distinct().toArray();
+        for (int i : idx)
+            stripes[i].lock.lock();
+        return idx;
+    }
+
+    private void unlock(int[] idx) {
+        for (int i = idx.length - 1; i >= 0; i--)
+            stripes[idx[i]].lock.unlock();
+    }
+
+    /** Stripe lock must be held. */
+    private long balanceOf(UUID playerId) {
+        return stripe(playerId).balances.get(playerId, 0L);
+    }
+
+    /** Balance minus unexpired holds; stripe lock must be held. Expired holds are dropped on the way. */
+    private long available(UUID playerId) {
+        Stripe s = stripe(playerId);
+        long available = s.balances.get(playerId, 0L);
+        List<Hold> list = s.holds.get(playerId);
+        if (list == null)
+            return available;
+
+        long now = System.currentTimeMillis();
+        var it = list.iterator();
+        while (it.hasNext()) {
+            Hold h = it.next();
+            if (h.expiresAt() > now) {
+                available -= h.amount();
+            }
+            else {
+                it.remove();
+                holds.remove(h.holdId());
+            }
+        }
+        if (list.isEmpty())
+            s.holds.remove(playerId);
+        return available;
+    }
+
+    private void addHold(Hold h) {
+        holds.put(h.holdId(), h);
+        stripe(h.playerId()).holds.computeIfAbsent(h.playerId(), k -> new ArrayList<>(2)).add(h);
+    }
+
+    private void removeHold(UUID holdId) {
+        Hold h = holds.remove(holdId);
+        if (h == null)
+            return;
+        Stripe s = stripe(h.playerId());
+        List<Hold> list = s.holds.get(h.playerId());
+        if (list != null) {
+            list.remove(h);
+            if (list.isEmpty())
+                s.holds.remove(h.playerId());
+        }
+    }
+
+    /** Applies a ledger row like econ_posting does; stripes of both sides must be locked (or replaying). */
+    private void apply(Transfer t) {
+        if (t.from() != null) {
+            Stripe s = stripe(t.from());
+            if (t.reason() != Transfer.TransferReason.ADMIN_MINT)
+                fire(t.from(), s.balances.add(t.from(), -t.amount()));
+            s.history.computeIfAbsent(t.from(), k -> new ArrayList<>()).add(t);
+        }
+        if (t.to() != null) {
+            Stripe s = stripe(t.to());
+            fire(t.to(), s.balances.add(t.to(), t.amount()));
+            s.history.computeIfAbsent(t.to(), k -> new ArrayList<>()).add(t);
+        }
+    }
+
+    private void fire(UUID playerId, long balance) {
+        BalanceListener l = listener;
+        if (l != null)
+            l.balanceChanged(playerId, balance);
+    }
+
+    /** Journals a transfer, prefixed by a key (claim ID / hold ID) if given. */
+    private void write(byte type, UUID key, Transfer t) {
+        if (journal == null)
+            return;
+        byte[] reason = t.reason().value().getBytes(StandardCharsets.US_ASCII);
+        int size = (key != null ? 16 : 0) + 16 * 4 + 8 + 8 + 1 + reason.length;
+        journal.append(type, size, out -> {
+            if (key != null)
+                MemoryJournal.putUuid(out, key);
+            MemoryJournal.putUuid(out, t.uuid());
+            MemoryJournal.putUuid(out, t.from());
+            MemoryJournal.putUuid(out, t.to());
+            MemoryJournal.putUuid(out, t.corrId());
+            out.putLong(t.amount());
+            out.putLong(t.timestamp());
+            out.put((byte) reason.length);
+            out.put(reason);
+        });
+    }
+
+    private static Transfer readTransfer(ByteBuffer in) {
+        UUID transferId = MemoryJournal.getUuid(in);
+        UUID from = MemoryJournal.getUuid(in);
+        UUID to = MemoryJournal.getUuid(in);
+        UUID corrId = MemoryJournal.getUuid(in);
+        long amount = in.getLong();
+        long timestamp = in.getLong();
+        byte[] reason = new byte[in.get()];
+        in.get(reason);
+        return new Transfer(transferId, from, to, amount,
+                Transfer.TransferReason.fromValue(new String(reason, StandardCharsets.US_ASCII)), corrId, timestamp);
+    }
+
+    /** Startup replay: single-threaded, so no stripe locks. */
+    private void replay(byte type, ByteBuffer in) {
+        switch (type) {
+            case REC_TRANSFER -> apply(readTransfer(in));
+            case REC_CLAIM -> {
+                claims.add(MemoryJournal.getUuid(in));
+                apply(readTransfer(in));
+            }
+            case REC_HOLD -> {
+                Hold h = new Hold(MemoryJournal.getUuid(in), MemoryJournal.getUuid(in), in.getLong(), in.getLong());
+                if (h.expiresAt() > System.currentTimeMillis())
+                    addHold(h);
+            }
+            case REC_CAPTURE -> {
+                removeHold(MemoryJournal.getUuid(in));
+                apply(readTransfer(in));
+            }
+            case REC_RELEASE -> removeHold(MemoryJournal.getUuid(in));
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package dev.chrona.economy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of {@link MemoryEconomy}, written through a memory-mapped window of the file.
+ * <p>
+ * Record layout: int length, int crc32 (of the payload), payload (type byte + body). The length is
+ * written last, and replay stops at the first empty, torn or corrupt record, so a crash in the
+ * middle of an append only loses that record. UUIDs are two longs; null is written as (0, 0).
+ * <p>
+ * An appended record is in the page cache right away (survives the process), but only survives the
+ * machine once forced: either per append (forceEachAppend) or by the owner calling {@link #force()}.
+ */
+final class MemoryJournal implements AutoCloseable {
+
+    /** Size of the mapped window; the file grows by mapping the next window. */
+    private static final int WINDOW = 16 << 20;
+    private static final int HEADER = 8;
+
+    @FunctionalInterface
+    interface BodyWriter {
+        void write(ByteBuffer out);
+    }
+
+    @FunctionalInterface
+    interface Replay {
+        void record(byte type, ByteBuffer body);
+    }
+
+    private final FileChannel channel;
+    private final boolean forceEachAppend;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    MemoryJournal(Path file, boolean forceEachAppend) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.forceEachAppend = forceEachAppend;
+    }
+
+    /** Feeds every intact record to the replay and positions the journal after the last one. */
+    long replay(Replay replay) throws IOException {
+        lock.lock();
+        try {
+            long size = channel.size();
+            long pos = 0;
+            long records = 0;
+            CRC32 check = new CRC32();
+            MappedByteBuffer buf = null;
+            long base = 0;
+            while (pos + HEADER <= size) {
+                if (buf == null || pos + HEADER > base + buf.limit()) {
+                    base = pos;
+                    buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, size - pos));
+                }
+                int offset = (int) (pos - base);
+                int len = buf.getInt(offset);
+                if (len <= 0 || pos + HEADER + len > size)
+                    break;   // end of journal, or torn at the end of the file
+                if (offset + HEADER + len > buf.limit()) {
+                    // record crosses the window: remap starting at it
+                    base = pos;
+                    buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(Math.max(WINDOW, HEADER + len), size - pos));
+                    offset = 0;
+                }
+
+                ByteBuffer payload = buf.slice(offset + HEADER, len);
+                check.reset();
+                check.update(payload.duplicate());
+                if ((int) check.getValue() != buf.getInt(offset + 4))
+                    break;   // torn or corrupt: everything after it is ignored
+
+                replay.record(payload.get(0), payload.slice(1, len - 1));
+                records++;
+                pos += HEADER + len;
+            }
+
+            position = pos;
+            map(pos, 0);
+            return records;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /** Appends one record; the body writer must put exactly bodySize bytes. */
+    void append(byte type, int bodySize, BodyWriter body) {
+        int len = 1 + bodySize;
+        lock.lock();
+        try {
+            if (window == null || position + HEADER + len > windowStart + window.capacity())
+                map(position, HEADER + len);
+
+            int offset = (int) (position - windowStart);
+            ByteBuffer out = window.slice(offset + HEADER, len);
+            out.put(type);
+            body.write(out);
+            if (out.position() != len)
+                throw new IllegalStateException("journal record size mismatch: " + out.position() + " != " + len);
+
+            crc.reset();
+            crc.update(window.slice(offset + HEADER, len));
+            window.putInt(offset + 4, (int) crc.getValue());
+            window.putInt(offset, len);   // last: makes the record visible to replay
+            position += HEADER + len;
+            if (forceEachAppend)
+                window.force(offset, HEADER + len);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("journal append failed", e);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /** Forces written records to disk. */
+    void force() {
+        lock.lock();
+        try {
+            if (window != null)
+                window.force();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            force();
+            window = null;
+            channel.close();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    static void putUuid(ByteBuffer out, UUID id) {
+        out.putLong(id != null ? id.getMostSignificantBits() : 0L);
+        out.putLong(id != null ? id.getLeastSignificantBits() : 0L);
+    }
+
+    static UUID getUuid(ByteBuffer in) {
+        long msb = in.getLong();
+        long lsb = in.getLong();
+        return msb == 0L && lsb == 0L ? null : new UUID(msb, lsb);
+    }
+
+    // ---------- Internals ----------
+
+    /** Maps the window starting at pos, at least minSize bytes (grows the file as needed). */
+    private void map(long pos, int minSize) throws IOException {
+        if (window != null)
+            window.force();
+        window = channel.map(FileChannel.MapMode.READ_WRITE, pos, Math.max(WINDOW, minSize));
+        windowStart = pos;
+    }
+}
@@ -0,0 +1,206 @@
+package dev.chrona.economy;
+
+import dev.chrona.common.log.ChronaLog;
+import dev.chrona.common.log.ChronaMarkers;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Listens on the 'econ_wallet' channel (see V11__econ_outbox.sql) and reports wallet changes made
+ * by other servers, so local caches can follow them without polling.
+ * <p>
+ * Runs on its own thread with a dedicated connection (LISTEN needs a session of its own). A
+ * notification names a committed transaction; its wallet changes are read from econ_outbox. After a
+ * reconnect the changes missed in between are read from there as well.
+ */
+public final class OutboxListener implements AutoCloseable {
+
+    private static final Logger log = ChronaLog.get(OutboxListener.class);
+
+    private static final String CHANNEL = "econ_wallet";
+    private static final int POLL_MILLIS = 500;
+    /** Catch-up overlap: outbox ids are assigned before commit, so a late commit can carry a lower id. */
+    private static final Duration CATCH_UP_OVERLAP = Duration.ofSeconds(30);
+
+    /** Opens the listen connection (not from the pool). */
+    @FunctionalInterface
+    public interface Connector {
+        Connection open() throws SQLException;
+    }
+
+    /** Applies a change of another server; handling must be idempotent (catch-up may repeat changes). */
+    @FunctionalInterface
+    public interface Handler {
+        void changed(UUID playerId, long balance) throws SQLException;
+    }
+
+    private final Connector connector;
+    private final String nodeId;
+    private final Handler handler;
+
+    private volatile boolean running;
+    private Thread thread;
+    private long lastId = -1;
+    private Instant lastSeen;
+
+    /**
+     * @param connector Opens the dedicated listen connection
+     * @param nodeId    application_name of this server; its own changes are skipped
+     * @param handler   Called for every change of another server
+     */
+    public OutboxListener(Connector connector, String nodeId, Handler handler) {
+        this.connector = Objects.requireNonNull(connector, "connector");
+        this.nodeId = Objects.requireNonNull(nodeId, "nodeId");
+        this.handler = Objects.requireNonNull(handler, "handler");
+    }
+
+    public void start() {
+        if (running)
+            return;
+        running = true;
+        thread = Thread.ofPlatform().name("chrona-econ-outbox").daemon().start(this::loop);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (thread == null)
+            return;
+        try {
+            thread.join(POLL_MILLIS * 4L);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------- Internals ----------
+
+    private void loop() {
+        long backoff = 1000;
+        while (running) {
+            try (Connection c = connector.open()) {
+                c.setAutoCommit(true);
+                try (Statement st = c.createStatement()) {
+                    st.execute("listen " + CHANNEL);
+                }
+
+                // first connect: caches are loaded fresh, only later changes matter
+                if (lastId < 0)
+                    lastId = maxOutboxId(c);
+                else
+                    catchUp(c);
+                backoff = 1000;
+
+                PGConnection pg = c.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(POLL_MILLIS);
+                    if (notifications == null)
+                        continue;
+                    for (PGNotification n : notifications)
+                        handle(c, n.getParameter());
+                }
+            }
+            catch (SQLException e) {
+                if (!running)
+                    break;
+                ChronaLog.error(log, ChronaMarkers.ECON, e, "Outbox listener lost its connection, retrying in {} ms", backoff);
+                try {
+                    Thread.sleep(backoff);
+                }
+                catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff = Math.min(backoff * 2, 30_000);
+            }
+        }
+    }
+
+    /** Payload: "txid origin"; one notification per committed transaction. */
+    private void handle(Connection c, String payload) throws SQLException {
+        String[] parts = payload.split(" ", 2);
+        long txid;
+        try {
+            txid = Long.parseLong(parts[0]);
+        }
+        catch (NumberFormatException e) {
+            log.warn(ChronaMarkers.ECON, "Malformed outbox notification: {}", payload);
+            return;
+        }
+
+        lastSeen = Instant.now();
+        String origin = parts.length == 2 ? parts[1] : "";
+        if (nodeId.equals(origin))
+            return;
+
+        // latest row per wallet of that transaction
+        Map<UUID, Long> latest = new LinkedHashMap<>();
+        try (PreparedStatement ps = c.prepareStatement(
+                "select outbox_id, player_id, balance from econ_outbox where txid = ? order by outbox_id")) {
+            ps.setLong(1, txid);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lastId = Math.max(lastId, rs.getLong(1));
+                    latest.put((UUID) rs.getObject(2), rs.getLong(3));
+                }
+            }
+        }
+        latest.forEach(this::apply);
+    }
+
+    /** Re-applies everything after the last seen id (plus overlap); only the latest change per wallet counts. */
+    private void catchUp(Connection c) throws SQLException {
+        Instant since = (lastSeen != null ? lastSeen : Instant.now()).minus(CATCH_UP_OVERLAP);
+        Map<UUID, Long> latest = new LinkedHashMap<>();
+        try (PreparedStatement ps = c.prepareStatement(
+                "select outbox_id, player_id, balance from econ_outbox " +
+                        "where (outbox_id > ? or created_at >= ?) and origin <> ? order by outbox_id")) {
+            ps.setLong(1, lastId);
+            ps.setObject(2, OffsetDateTime.ofInstant(since, ZoneOffset.UTC));
+            ps.setString(3, nodeId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lastId = Math.max(lastId, rs.getLong(1));
+                    latest.put((UUID) rs.getObject(2), rs.getLong(3));
+                }
+            }
+        }
+
+        if (!latest.isEmpty())
+            log.info(ChronaMarkers.ECON, "Outbox catch-up: {} wallet(s) changed by other servers.", latest.size());
+        latest.forEach(this::apply);
+    }
+
+    private void apply(UUID playerId, long balance) {
+        try {
+            handler.changed(playerId, balance);
+        }
+        catch (SQLException | RuntimeException e) {
+            ChronaLog.error(log, ChronaMarkers.ECON, e, "Failed to apply remote wallet change for {}", playerId);
+        }
+    }
+
+    private static long maxOutboxId(Connection c) throws SQLException {
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("select coalesce(max(outbox_id), 0) from econ_outbox")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
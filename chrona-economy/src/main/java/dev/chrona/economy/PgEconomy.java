@@ -1,12 +1,27 @@
 package dev.chrona.economy;
 
+import dev.chrona.common.metrics.Counter;
+import dev.chrona.common.metrics.Metrics;
+import dev.chrona.common.metrics.Timer;
+
 import javax.sql.DataSource;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 
 import java.sql.*;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * Postgres-Implementierung der Economy-Logik.
@@ -14,36 +29,113 @@ import java.util.Objects;
  * (siehe V1__economy_init.sql).
  * <p>
  * Thread-sicher durch DB-Transaktionen + "SELECT ... FOR UPDATE".
+ * <p>
+ * Metrics (see {@link Metrics}): latency, failures and rejections per operation under "econ.&lt;op&gt;",
+ * connection acquire time under "econ.acquire", wait for the explicit row locks of settleBatch under
+ * "econ.lock_wait". pay/claim/mint/burn lock inside their SQL functions, so there the lock wait is part
+ * of the operation latency (latency - acquire = time spent in Postgres).
  */
 public final class PgEconomy implements EconomyService {
 
+    /**
+     * Order of uuid values in Postgres (unsigned, byte-wise). Java's UUID.compareTo compares signed,
+     * so anything that locks wallet rows in Java must sort with this to match the lock order of econ_pay.
+     */
+    static final Comparator<UUID> PG_ORDER = (a, b) -> {
+        int c = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return c != 0 ? c : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    };
+
+    private static final Op GET_BALANCE = new Op("getBalance");
+    private static final Op GET_BALANCES = new Op("getBalances");
+    private static final Op PAY = new Op("pay");
+    private static final Op CLAIM = new Op("claimOnce");
+    private static final Op MINT = new Op("mint");
+    private static final Op BURN = new Op("burn");
+    private static final Op SETTLE = new Op("settleBatch");
+    private static final Op HOLD = new Op("hold");
+    private static final Op CAPTURE = new Op("capture");
+    private static final Op RELEASE = new Op("release");
+    private static final Op GET_TRANSFERS = new Op("getTransfers");
+    private static final Op FOR_EACH_TRANSFER = new Op("forEachTransfer");
+    private static final Timer ACQUIRE = Metrics.timer("econ.acquire");
+    private static final Timer LOCK_WAIT = Metrics.timer("econ.lock_wait");
+
     private final DataSource ds;
+    private final RecentClaims recentClaims;
+    private volatile Set<UUID> hotAccounts = Set.of();
+    private volatile Consumer<UUID> hotAccountListener;
+    private volatile BalanceListener listener;
 
     public PgEconomy(DataSource dataSource) {
+        this(dataSource, 10_000);
+    }
+
+    /**
+     * @param dataSource   Pool for all economy statements
+     * @param recentClaims How many claim IDs are remembered to short-cut replays of claimOnce
+     */
+    public PgEconomy(DataSource dataSource, int recentClaims) {
         this.ds = Objects.requireNonNull(dataSource, "dataSource");
+        this.recentClaims = new RecentClaims(recentClaims);
+    }
+
+    /** Registers the listener for balance changes made through this instance (null to remove). */
+    public void setBalanceListener(BalanceListener listener) {
+        this.listener = listener;
     }
 
     // ---------- Public API ----------
 
     @Override
     public long getBalance(UUID playerId) throws SQLException {
-        try (Connection c = ds.getConnection()) {
-            c.setAutoCommit(false);
-            try {
-                ensureWalletExists(c, playerId);
-                long bal = currentBalance(c, playerId);
-                c.commit();
-                return bal;
+        return GET_BALANCE.time(() -> balance(playerId));
+    }
+
+    private long balance(UUID playerId) throws SQLException {
+        // Read-only: a missing wallet simply has balance 0, it gets created on join / first write
+        try (Connection c = connection()) {
+            c.setReadOnly(true);
+            try (PreparedStatement ps = c.prepareStatement(
+                    "select balance from econ_wallet_balance where player_id = ?")) {
+                ps.setObject(1, playerId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
             }
-            catch (Exception e) {
-                c.rollback();
-                throw e;
+        }
+    }
+
+    @Override
+    public UuidLongMap getBalances(Collection<UUID> playerIds) throws SQLException {
+        return GET_BALANCES.time(() -> balances(playerIds));
+    }
+
+    private UuidLongMap balances(Collection<UUID> playerIds) throws SQLException {
+        UuidLongMap balances = new UuidLongMap(playerIds.size());
+        if (playerIds.isEmpty())
+            return balances;
+
+        try (Connection c = connection()) {
+            c.setReadOnly(true);
+            try (PreparedStatement ps = c.prepareStatement(
+                    "select player_id, balance from econ_wallet_balance where player_id = any(?)")) {
+                ps.setArray(1, c.createArrayOf("uuid", playerIds.toArray()));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next())
+                        balances.put((UUID) rs.getObject(1), rs.getLong(2));
+                }
             }
         }
+        return balances;
     }
 
     @Override
     public long pay(UUID from, UUID to, long amount) throws SQLException {
+        return PAY.time(() -> payTx(from, to, amount));
+    }
+
+    private long payTx(UUID from, UUID to, long amount) throws SQLException {
         if (amount <= 0)
             throw new IllegalArgumentException("amount must be > 0");
 
@@ -53,72 +145,123 @@ public final class PgEconomy implements EconomyService {
         if (from.equals(to))
             throw new IllegalArgumentException("cannot pay yourself");
 
-        try (Connection c = ds.getConnection()) {
-            c.setAutoCommit(false);
-            try {
-                ensureWalletExists(c, from);
-                ensureWalletExists(c, to);
-
-                long fromBal = lockAndGet(c, from);     // lock sender wallet
-                lockAndGet(c, to);                      // lock receiver wallet
-
-                if (fromBal < amount)
-                    throw new SQLException("INSUFFICIENT_FUNDS");
-
-                updateWallet(c, from, -amount);         // version++, updated_at
-                updateWallet(c, to,   +amount);
-
-                UUID corrId = UUID.randomUUID();
-                insertTransfer(c, new Transfer(from, to, amount, Transfer.TransferReason.PLAYER_PAYMENT, corrId));
-                insertTransfer(c, new Transfer(from, to, -amount, Transfer.TransferReason.PLAYER_PAYMENT, corrId));
-
-                c.commit();
-                return fromBal - amount;
-            }
-            catch (Exception e) {
-                c.rollback();
-                throw e;
+        // econ_pay (V5/V10) locks both wallets in player_id order and writes a single ledger row
+        try (Connection c = connection();
+             PreparedStatement ps = c.prepareStatement("select from_balance, to_balance from econ_pay(?, ?, ?, ?)")) {
+            ps.setObject(1, from);
+            ps.setObject(2, to);
+            ps.setLong(3, amount);
+            ps.setObject(4, UUID.randomUUID());
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                long fromBalance = rs.getLong(1);
+                fire(from, fromBalance);
+                fire(to, rs.getLong(2));
+                return fromBalance;
             }
         }
+        catch (SQLException ex) {
+            if (isInsufficientFunds(ex))
+                throw new SQLException("INSUFFICIENT_FUNDS", ex.getSQLState(), ex);
+            throw ex;
+        }
     }
 
     @Override
     public long claimOnce(UUID playerId, UUID claimId, long amount, String source) throws SQLException {
+        return claim(playerId, claimId, amount, source).balance();
+    }
+
+    /**
+     * claimOnce with the information whether this call credited the wallet (false = replay).
+     * Claim, credit and ledger row are written by one statement; a replay costs no failed insert.
+     */
+    ClaimResult claim(UUID playerId, UUID claimId, long amount, String source) throws SQLException {
+        return CLAIM.time(() -> claimTx(playerId, claimId, amount, source));
+    }
+
+    private ClaimResult claimTx(UUID playerId, UUID claimId, long amount, String source) throws SQLException {
         if (amount <= 0)
             throw new IllegalArgumentException("amount must be > 0");
         Objects.requireNonNull(claimId, "claimId");
 
-        try (Connection c = ds.getConnection()) {
+        // Seen recently: replay, nothing to write
+        if (recentClaims.contains(claimId))
+            return new ClaimResult(false, balance(playerId));
+
+        // the CTE below credits the wallet row; hot accounts have to go through econ_credit (shards)
+        if (isHotAccount(playerId))
+            return claimHotTx(playerId, claimId, amount, source);
+
+        try (Connection c = connection();
+             PreparedStatement ps = c.prepareStatement("""
+                with claim as (
+                    insert into econ_claim (claim_id, player_id, source, amount)
+                    values (?, ?, ?, ?)
+                    on conflict (claim_id) do nothing
+                    returning player_id, amount
+                ), credit as (
+                    insert into wallet (player_id, balance, version)
+                    select player_id, amount, 1 from claim
+                    on conflict (player_id) do update
+                    set balance = wallet.balance + excluded.balance,
+                        version = wallet.version + 1,
+                        updated_at = now()
+                    returning balance
+                ), ledger as (
+                    insert into econ_transfer (to_player, amount, reason)
+                    select player_id, amount, 'CLAIM' from claim
+                )
+                select balance from credit
+             """)) {
+            ps.setObject(1, claimId);
+            ps.setObject(2, playerId);
+            ps.setString(3, source != null ? source : "UNKNOWN");
+            ps.setLong(4, amount);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    long bal = rs.getLong(1);
+                    recentClaims.add(claimId);
+                    fire(playerId, bal);
+                    return new ClaimResult(true, bal);
+                }
+            }
+        }
+
+        // Conflict on claim_id: already claimed -> idempotent, current balance
+        recentClaims.add(claimId);
+        return new ClaimResult(false, balance(playerId));
+    }
+
+    /** claimTx for a hot account: same rows, but the credit lands on a shard (V9 lock order). */
+    private ClaimResult claimHotTx(UUID playerId, UUID claimId, long amount, String source) throws SQLException {
+        try (Connection c = connection()) {
             c.setAutoCommit(false);
             try {
-                ensureWalletExists(c, playerId);
-
-                // 1) Versuch: Claim eintragen (einzigartig via claim_id)
+                boolean inserted;
                 try (PreparedStatement ps = c.prepareStatement(
-                        "insert into econ_claim (claim_id, player_id, source, amount) values (?,?,?,?)")) {
+                        "insert into econ_claim (claim_id, player_id, source, amount) values (?, ?, ?, ?) " +
+                                "on conflict (claim_id) do nothing")) {
                     ps.setObject(1, claimId);
                     ps.setObject(2, playerId);
                     ps.setString(3, source != null ? source : "UNKNOWN");
                     ps.setLong(4, amount);
-                    ps.executeUpdate();
+                    inserted = ps.executeUpdate() == 1;
                 }
-                catch (SQLException ex) {
-                    if (isUniqueViolation(ex)) {
-                        // Bereits beansprucht: Idempotenz -> aktuellen Stand zurück
-                        long bal = currentBalance(c, playerId);
-                        c.commit();
-                        return bal;
-                    }
-                    throw ex;
+
+                if (!inserted) {
+                    c.rollback();
+                    recentClaims.add(claimId);
+                    return new ClaimResult(false, balance(playerId));
                 }
 
-                // 2) Gutschrift
-                lockAndGet(c, playerId);
-                updateWallet(c, playerId, +amount);
+                long bal = credit(c, playerId, amount);
                 insertTransfer(c, new Transfer(null, playerId, amount, Transfer.TransferReason.CLAIM, null));
-
                 c.commit();
-                return currentBalance(c, playerId);
+                recentClaims.add(claimId);
+                fire(playerId, bal);
+                return new ClaimResult(true, bal);
             }
             catch (Exception e) {
                 c.rollback();
@@ -129,16 +272,20 @@ public final class PgEconomy implements EconomyService {
 
     @Override
     public long mint(UUID from, UUID to, long amount, UUID corrId) throws SQLException {
+        return MINT.time(() -> mintTx(from, to, amount, corrId));
+    }
+
+    private long mintTx(UUID from, UUID to, long amount, UUID corrId) throws SQLException {
         if (amount <= 0) throw new IllegalArgumentException("amount must be > 0");
-        try (Connection c = ds.getConnection()) {
+        try (Connection c = connection()) {
             c.setAutoCommit(false);
             try {
                 ensureWalletExists(c, to);
-                lockAndGet(c, to);
-                updateWallet(c, to, +amount);
+                long bal = credit(c, to, amount);
                 insertTransfer(c, new Transfer(from, to, amount, Transfer.TransferReason.ADMIN_MINT, corrId));
                 c.commit();
-                return currentBalance(c, to);
+                fire(to, bal);
+                return bal;
             }
             catch (Exception e) {
                 c.rollback();
@@ -149,17 +296,21 @@ public final class PgEconomy implements EconomyService {
 
     @Override
     public long burn(UUID sender, UUID from, long amount, UUID corrId) throws SQLException {
+        return BURN.time(() -> burnTx(from, amount, corrId));
+    }
+
+    private long burnTx(UUID from, long amount, UUID corrId) throws SQLException {
         if (amount <= 0) throw new IllegalArgumentException("amount must be > 0");
-        try (Connection c = ds.getConnection()) {
+        try (Connection c = connection()) {
             c.setAutoCommit(false);
             try {
                 ensureWalletExists(c, from);
-                long bal = lockAndGet(c, from);
-                if (bal < amount) throw new SQLException("INSUFFICIENT_FUNDS");
-                updateWallet(c, from, -amount);
-                insertTransfer(c, new Transfer(from, null, -amount, Transfer.TransferReason.ADMIN_BURN, corrId));
+                long bal = tryDebit(c, from, amount);
+                if (bal < 0) throw new SQLException("INSUFFICIENT_FUNDS");
+                insertTransfer(c, new Transfer(from, null, amount, Transfer.TransferReason.ADMIN_BURN, corrId));
                 c.commit();
-                return currentBalance(c, from);
+                fire(from, bal);
+                return bal;
             } catch (Exception e) {
                 c.rollback();
                 throw e;
@@ -167,9 +318,217 @@ public final class PgEconomy implements EconomyService {
         }
     }
 
+    @Override
+    public List<PostingResult> settleBatch(List<Posting> postings) throws SQLException {
+        return SETTLE.time(() -> settleTx(postings));
+    }
+
+    private List<PostingResult> settleTx(List<Posting> postings) throws SQLException {
+        if (postings.isEmpty())
+            return List.of();
+
+        // distinct wallets in Postgres uuid order = lock order
+        TreeSet<UUID> players = new TreeSet<>(PG_ORDER);
+        for (Posting p : postings)
+            players.add(p.playerId());
+
+        try (Connection c = connection()) {
+            c.setAutoCommit(false);
+            try {
+                Array ids = c.createArrayOf("uuid", players.toArray());
+
+                try (PreparedStatement ps = c.prepareStatement(
+                        "insert into wallet (player_id, balance, version) " +
+                                "select id, 0, 0 from unnest(?::uuid[]) as id " +
+                                "on conflict (player_id) do nothing")) {
+                    ps.setArray(1, ids);
+                    ps.executeUpdate();
+                }
+
+                // regular wallets are locked up front; hot accounts only lock a shard per posting (after them)
+                UuidLongMap balances = new UuidLongMap(players.size());
+                try (PreparedStatement ps = c.prepareStatement(
+                        "select w.player_id, w.balance from wallet w where w.player_id = any(?) " +
+                                "and not exists (select 1 from econ_hot_account h where h.player_id = w.player_id) " +
+                                "order by w.player_id for update")) {
+                    ps.setArray(1, ids);
+                    long start = System.nanoTime();
+                    try (ResultSet rs = ps.executeQuery()) {
+                        LOCK_WAIT.stop(start);
+                        while (rs.next())
+                            balances.put((UUID) rs.getObject(1), rs.getLong(2));
+                    }
+                }
+
+                // holds read after the lock, so holds placed while we waited count too
+                UuidLongMap held = new UuidLongMap(players.size());
+                try (PreparedStatement ps = c.prepareStatement(
+                        "select player_id, econ_held(player_id) from unnest(?::uuid[]) as player_id")) {
+                    ps.setArray(1, ids);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next())
+                            held.put((UUID) rs.getObject(1), rs.getLong(2));
+                    }
+                }
+
+                // apply in list order against the locked balances
+                List<PostingResult> results = new ArrayList<>(postings.size());
+                List<Posting> applied = new ArrayList<>(postings.size());
+                UuidLongMap deltas = new UuidLongMap(players.size());
+                for (Posting p : postings) {
+                    if (!balances.containsKey(p.playerId())) {
+                        long bal = p.isCredit() ? credit(c, p.playerId(), p.amount()) : tryDebit(c, p.playerId(), -p.amount());
+                        if (bal < 0) {
+                            results.add(new PostingResult(p, false, getBalance(c, p.playerId())));
+                            continue;
+                        }
+                        applied.add(p);
+                        results.add(new PostingResult(p, true, bal));
+                        continue;
+                    }
+
+                    long bal = balances.get(p.playerId(), 0L);
+                    if (p.amount() < 0 && bal - held.get(p.playerId(), 0L) + p.amount() < 0) {
+                        results.add(new PostingResult(p, false, bal));
+                        continue;
+                    }
+                    balances.put(p.playerId(), bal + p.amount());
+                    deltas.add(p.playerId(), p.amount());
+                    applied.add(p);
+                    results.add(new PostingResult(p, true, bal + p.amount()));
+                }
+
+                List<UUID> changed = new ArrayList<>(players.size());
+                for (UUID id : players) {
+                    if (deltas.get(id, 0L) != 0)
+                        changed.add(id);
+                }
+                updateWallets(c, changed, deltas);
+                insertPostings(c, applied);
+
+                c.commit();
+
+                if (listener != null) {
+                    // the last result per wallet carries its final balance
+                    UuidLongMap finalBalances = new UuidLongMap(players.size());
+                    for (PostingResult r : results)
+                        finalBalances.put(r.posting().playerId(), r.balance());
+                    finalBalances.forEach(this::fire);
+                }
+                return results;
+            }
+            catch (Exception e) {
+                c.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public UUID hold(UUID playerId, long amount, Duration ttl) throws SQLException {
+        return HOLD.time(() -> holdTx(playerId, amount, ttl));
+    }
+
+    private UUID holdTx(UUID playerId, long amount, Duration ttl) throws SQLException {
+        if (amount <= 0)
+            throw new IllegalArgumentException("amount must be > 0");
+        if (ttl.isNegative() || ttl.isZero())
+            throw new IllegalArgumentException("ttl must be > 0");
+
+        // econ_hold (V12) locks the wallet only for this statement
+        UUID holdId = UUID.randomUUID();
+        try (Connection c = connection();
+             PreparedStatement ps = c.prepareStatement("select econ_hold(?, ?, ?, ?::interval)")) {
+            ps.setObject(1, holdId);
+            ps.setObject(2, playerId);
+            ps.setLong(3, amount);
+            ps.setString(4, ttl.toMillis() + " milliseconds");
+            ps.executeQuery().close();
+            return holdId;
+        }
+        catch (SQLException ex) {
+            if (isInsufficientFunds(ex))
+                throw new SQLException("INSUFFICIENT_FUNDS", ex.getSQLState(), ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public long capture(UUID holdId, UUID to) throws SQLException {
+        return captureHold(holdId, to).balance();
+    }
+
+    /** capture with the holder of the hold, for callers that have to update caches. */
+    CaptureResult captureHold(UUID holdId, UUID to) throws SQLException {
+        return CAPTURE.time(() -> captureTx(holdId, to));
+    }
+
+    private CaptureResult captureTx(UUID holdId, UUID to) throws SQLException {
+        Objects.requireNonNull(holdId, "holdId");
+
+        try (Connection c = connection();
+             PreparedStatement ps = c.prepareStatement(
+                     "select holder_id, held_amount, from_balance, to_balance from econ_capture(?, ?)")) {
+            ps.setObject(1, holdId);
+            ps.setObject(2, to, Types.OTHER);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                CaptureResult result = new CaptureResult((UUID) rs.getObject(1), rs.getLong(2), rs.getLong(3));
+                fire(result.holder(), result.balance());
+                if (to != null)
+                    fire(to, rs.getLong(4));
+                return result;
+            }
+        }
+        catch (SQLException ex) {
+            if ("EC002".equals(ex.getSQLState()))
+                throw new SQLException("HOLD_NOT_ACTIVE", ex.getSQLState(), ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public boolean release(UUID holdId) throws SQLException {
+        return RELEASE.time(() -> releaseTx(holdId));
+    }
+
+    private boolean releaseTx(UUID holdId) throws SQLException {
+        // no wallet lock: releasing only makes money available again
+        try (Connection c = connection();
+             PreparedStatement ps = c.prepareStatement(
+                     "update econ_hold set status = 'RELEASED', settled_at = now() " +
+                             "where hold_id = ? and status = 'ACTIVE'")) {
+            ps.setObject(1, holdId);
+            return ps.executeUpdate() == 1;
+        }
+    }
+
+    /** Active, unexpired holds of a wallet (for caches). */
+    List<ActiveHold> activeHolds(UUID playerId) throws SQLException {
+        List<ActiveHold> holds = new ArrayList<>();
+        try (Connection c = connection()) {
+            c.setReadOnly(true);
+            try (PreparedStatement ps = c.prepareStatement(
+                    "select hold_id, amount, expires_at from econ_hold " +
+                            "where player_id = ? and status = 'ACTIVE' and expires_at > now()")) {
+                ps.setObject(1, playerId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next())
+                        holds.add(new ActiveHold((UUID) rs.getObject(1), rs.getLong(2),
+                                rs.getObject(3, OffsetDateTime.class).toInstant()));
+                }
+            }
+        }
+        return holds;
+    }
+
     @Override
     public Transfer[] getTransfers(UUID playerId, int limit, int offset) throws SQLException {
-        try (Connection c = ds.getConnection()) {
+        return GET_TRANSFERS.time(() -> transfers(playerId, limit, offset));
+    }
+
+    private Transfer[] transfers(UUID playerId, int limit, int offset) throws SQLException {
+        try (Connection c = connection()) {
             try (PreparedStatement ps = c.prepareStatement(
                     "select transfer_id, from_player, to_player, amount, reason, corr_id, created_at " +
                             "from econ_transfer " +
@@ -182,30 +541,249 @@ public final class PgEconomy implements EconomyService {
                 ps.setInt(4, offset);
                 try (ResultSet rs = ps.executeQuery()) {
                     ArrayList<Transfer> transfers = new ArrayList<>();
-                    while (rs.next()) {
-                        UUID transferId = (UUID) rs.getObject(1);
-                        UUID fromPlayer = (UUID) rs.getObject(2);
-                        UUID toPlayer = (UUID) rs.getObject(3);
-                        long amount = rs.getLong(4);
-                        String reasonStr = rs.getString(5);
-                        UUID corrId = (UUID) rs.getObject(6);
-                        long timestamp = rs.getTimestamp(7).getTime();
+                    while (rs.next())
+                        transfers.add(readTransfer(rs));
+                    return transfers.toArray(new Transfer[0]);
+                }
+            }
+        }
+    }
 
-                        Transfer.TransferReason reason = Transfer.TransferReason.valueOf(reasonStr);
+    @Override
+    public TransferCursor forEachTransfer(UUID playerId, TransferCursor after, int limit,
+                                          Consumer<? super Transfer> action) throws SQLException {
+        return FOR_EACH_TRANSFER.time(() -> transfers(playerId, after, limit, action));
+    }
 
-                        transfers.add(new Transfer(transferId, fromPlayer, toPlayer, amount, reason, corrId, timestamp));
+    private TransferCursor transfers(UUID playerId, TransferCursor after, int limit,
+                                     Consumer<? super Transfer> action) throws SQLException {
+        if (limit <= 0)
+            throw new IllegalArgumentException("limit must be > 0");
+        Objects.requireNonNull(playerId, "playerId");
+
+        // Both sides are read from their own (player, created_at desc, transfer_id desc) index (V6)
+        // and merged; the receiver side skips rows already returned by the sender side.
+        String seek = after != null ? "and (created_at, transfer_id) < (?, ?) " : "";
+        String sql =
+                "select transfer_id, from_player, to_player, amount, reason, corr_id, created_at from (" +
+                "(select transfer_id, from_player, to_player, amount, reason, corr_id, created_at " +
+                        "from econ_transfer where from_player = ? " + seek +
+                        "order by created_at desc, transfer_id desc limit ?) " +
+                "union all " +
+                "(select transfer_id, from_player, to_player, amount, reason, corr_id, created_at " +
+                        "from econ_transfer where to_player = ? and from_player is distinct from ? " + seek +
+                        "order by created_at desc, transfer_id desc limit ?)" +
+                ") t order by created_at desc, transfer_id desc limit ?";
+
+        try (Connection c = connection()) {
+            // a cursor-based fetch needs a transaction; rows reach the action while the page is still read
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setFetchSize(Math.min(limit, 256));
+
+                int i = 1;
+                ps.setObject(i++, playerId);
+                i = setCursor(ps, i, after);
+                ps.setInt(i++, limit);
+                ps.setObject(i++, playerId);
+                ps.setObject(i++, playerId);
+                i = setCursor(ps, i, after);
+                ps.setInt(i++, limit);
+                ps.setInt(i, limit);
+
+                int rows = 0;
+                TransferCursor last = null;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Transfer transfer = readTransfer(rs);
+                        last = new TransferCursor(rs.getObject(7, OffsetDateTime.class).toInstant(), transfer.uuid());
+                        action.accept(transfer);
+                        rows++;
                     }
-                    return transfers.toArray(new Transfer[0]);
                 }
+                c.commit();
+                return rows < limit ? null : last;
+            }
+            catch (Exception e) {
+                c.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // ---------- Hot accounts ----------
+
+    /**
+     * Turns a wallet into a striped hot account (see V9__econ_hot_accounts.sql) or changes its shard count.
+     * Meant for system accounts with many concurrent writers (treasury, fee sinks). The wallet is created
+     * if missing; the account must exist as a player row.
+     * @param playerId Account to stripe
+     * @param shards   Number of sub-rows, roughly the number of concurrent writers (1..1024)
+     * @throws SQLException on DB error
+     */
+    public void enableHotAccount(UUID playerId, int shards) throws SQLException {
+        if (shards < 1 || shards > 1024)
+            throw new IllegalArgumentException("shards must be 1..1024");
+
+        try (Connection c = connection()) {
+            c.setAutoCommit(false);
+            try {
+                ensureWalletExists(c, playerId);
+                try (PreparedStatement ps = c.prepareStatement("select econ_hot_account_enable(?, ?)")) {
+                    ps.setObject(1, playerId);
+                    ps.setInt(2, shards);
+                    ps.execute();
+                }
+                c.commit();
+            }
+            catch (Exception e) {
+                c.rollback();
+                throw e;
+            }
+        }
+        refreshHotAccounts();
+    }
+
+    /**
+     * Folds a hot account back into a regular wallet.
+     * @param playerId Account to unstripe
+     * @throws SQLException on DB error
+     */
+    public void disableHotAccount(UUID playerId) throws SQLException {
+        try (Connection c = connection();
+             PreparedStatement ps = c.prepareStatement("select econ_hot_account_disable(?)")) {
+            ps.setObject(1, playerId);
+            ps.execute();
+        }
+        refreshHotAccounts();
+    }
+
+    /**
+     * Registers a callback for wallets that became hot accounts on a {@link #refreshHotAccounts()},
+     * e.g. to drop them from a cache (null to remove).
+     */
+    public void setHotAccountListener(Consumer<UUID> listener) {
+        this.hotAccountListener = listener;
+    }
+
+    /** Returns true if the wallet is a hot account (as of the last {@link #refreshHotAccounts()}). */
+    public boolean isHotAccount(UUID playerId) {
+        return hotAccounts.contains(playerId);
+    }
+
+    /**
+     * Reloads the set of hot accounts from econ_hot_account.
+     * @throws SQLException on DB error
+     */
+    public void refreshHotAccounts() throws SQLException {
+        Set<UUID> ids = new HashSet<>();
+        try (Connection c = connection()) {
+            c.setReadOnly(true);
+            try (PreparedStatement ps = c.prepareStatement("select player_id from econ_hot_account");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    ids.add((UUID) rs.getObject(1));
+            }
+        }
+        Set<UUID> before = hotAccounts;
+        hotAccounts = Set.copyOf(ids);
+
+        Consumer<UUID> l = hotAccountListener;
+        if (l != null) {
+            for (UUID id : ids) {
+                if (!before.contains(id))
+                    l.accept(id);
             }
         }
     }
 
     // ---------- Internals ----------
 
-    private static boolean isUniqueViolation(SQLException ex) {
-        // Postgres UNIQUE VIOLATION: 23505
-        return "23505".equals(ex.getSQLState());
+    private Connection connection() throws SQLException {
+        long start = System.nanoTime();
+        Connection c = ds.getConnection();
+        ACQUIRE.stop(start);
+        return c;
+    }
+
+    @FunctionalInterface
+    private interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    /** Latency, failures and rejections (insufficient funds, inactive hold) of one operation. */
+    private static final class Op {
+        private final Timer latency;
+        private final Counter failures;
+        private final Counter rejected;
+
+        Op(String name) {
+            this.latency = Metrics.timer("econ." + name);
+            this.failures = Metrics.counter("econ." + name + ".failures");
+            this.rejected = Metrics.counter("econ." + name + ".rejected");
+        }
+
+        <T> T time(SqlCall<T> call) throws SQLException {
+            long start = System.nanoTime();
+            try {
+                return call.call();
+            }
+            catch (SQLException e) {
+                if ("INSUFFICIENT_FUNDS".equals(e.getMessage()) || "HOLD_NOT_ACTIVE".equals(e.getMessage()))
+                    rejected.increment();
+                else
+                    failures.increment();
+                throw e;
+            }
+            catch (RuntimeException e) {
+                failures.increment();
+                throw e;
+            }
+            finally {
+                latency.stop(start);
+            }
+        }
+    }
+
+    private void fire(UUID playerId, long balance) {
+        BalanceListener l = listener;
+        if (l != null)
+            l.balanceChanged(playerId, balance);
+    }
+
+    /** Outcome of {@link #captureHold}: holder of the hold, captured amount and the holder's new balance. */
+    record CaptureResult(UUID holder, long amount, long balance) {}
+
+    /** Hold as seen by {@link #activeHolds}. */
+    record ActiveHold(UUID holdId, long amount, Instant expiresAt) {}
+
+    /** Outcome of {@link #claim}: credited == false means the claim ID was already used. */
+    record ClaimResult(boolean credited, long balance) {}
+
+    /** Maps a row of (transfer_id, from_player, to_player, amount, reason, corr_id, created_at). */
+    private static Transfer readTransfer(ResultSet rs) throws SQLException {
+        UUID transferId = (UUID) rs.getObject(1);
+        UUID fromPlayer = (UUID) rs.getObject(2);
+        UUID toPlayer = (UUID) rs.getObject(3);
+        long amount = rs.getLong(4);
+        Transfer.TransferReason reason = Transfer.TransferReason.fromValue(rs.getString(5));
+        UUID corrId = (UUID) rs.getObject(6);
+        long timestamp = rs.getTimestamp(7).getTime();
+
+        return new Transfer(transferId, fromPlayer, toPlayer, amount, reason, corrId, timestamp);
+    }
+
+    private static int setCursor(PreparedStatement ps, int i, TransferCursor cursor) throws SQLException {
+        if (cursor == null)
+            return i;
+        ps.setObject(i++, OffsetDateTime.ofInstant(cursor.createdAt(), ZoneOffset.UTC));
+        ps.setObject(i++, cursor.transferId());
+        return i;
+    }
+
+    private static boolean isInsufficientFunds(SQLException ex) {
+        // raised by econ_pay / econ_debit / econ_hold
+        return "EC001".equals(ex.getSQLState());
     }
 
     private static String reasonOrDefault(String reason, String def) {
@@ -214,7 +792,7 @@ public final class PgEconomy implements EconomyService {
 
     /**
      * Stellt sicher, dass ein Wallet existiert (Upsert leichtgewichtig).
-     * Kein Lock hier – Lock passiert in lockAndGet().
+     * Kein Lock hier – Lock passiert in econ_credit/econ_try_debit bzw. settleBatch.
      */
     private static void ensureWalletExists(Connection c, UUID playerId) throws SQLException {
         // Versuche direkt insert; bei Konflikt tue nichts.
@@ -228,45 +806,95 @@ public final class PgEconomy implements EconomyService {
     }
 
     /**
-     * Liest den aktuellen Kontostand und sperrt die Zeile via FOR UPDATE.
-     * Existiert kein Wallet (was nach ensureWalletExists selten ist), wird eine SQLException geworfen.
+     * Schreibt amount gut (econ_credit, V9): normales Wallet per Row-Update, Hot-Account auf einen Shard.
+     * Liefert den neuen Kontostand.
      */
-    private static long lockAndGet(Connection c, UUID playerId) throws SQLException {
-        try (PreparedStatement ps = c.prepareStatement(
-                "select balance from wallet where player_id = ? for update")) {
+    private static long credit(Connection c, UUID playerId, long amount) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("select econ_credit(?, ?)")) {
             ps.setObject(1, playerId);
+            ps.setLong(2, amount);
             try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next())
-                    throw new SQLException("WALLET_NOT_FOUND");
+                rs.next();
                 return rs.getLong(1);
             }
         }
     }
 
-    /** Liest den Kontostand ohne Lock (für Rückgabe nach Commit okay). */
-    private static long currentBalance(Connection c, UUID playerId) throws SQLException {
-        try (PreparedStatement ps = c.prepareStatement(
-                "select balance from wallet where player_id = ?")) {
+    /**
+     * Bucht amount ab, falls gedeckt (econ_try_debit, V9).
+     * Liefert den neuen Kontostand oder -1 bei zu wenig Guthaben.
+     */
+    private static long tryDebit(Connection c, UUID playerId, long amount) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("select econ_try_debit(?, ?)")) {
+            ps.setObject(1, playerId);
+            ps.setLong(2, amount);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                long bal = rs.getLong(1);
+                return rs.wasNull() ? -1L : bal;
+            }
+        }
+    }
+
+    /** Liest den Kontostand inkl. Shards ohne Lock. */
+    private static long getBalance(Connection c, UUID playerId) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("select econ_balance(?)")) {
             ps.setObject(1, playerId);
             try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next()) throw new SQLException("WALLET_NOT_FOUND");
+                rs.next();
                 return rs.getLong(1);
             }
         }
     }
 
-    /**
-     * Addiert delta (+/-) auf das Wallet und erhöht version.
-     * Nutzt die aktuelle Version implizit (keine WHERE version = ?), weil wir die Zeile bereits FOR UPDATE gesperrt haben.
-     * Wenn du explizites Optimistic Locking willst, erweitere um WHERE version = ? und prüfe die updateCount==1.
-     */
-    private static void updateWallet(Connection c, UUID playerId, long delta) throws SQLException {
-        try (PreparedStatement ps = c.prepareStatement(
-                "update wallet set balance = balance + ?, version = version + 1, updated_at = now() where player_id = ?")) {
-            ps.setLong(1, delta);
-            ps.setObject(2, playerId);
-            int n = ps.executeUpdate();
-            if (n != 1) throw new SQLException("WALLET_UPDATE_FAILED");
+    /** Max. rows per multi-row statement (pgjdbc allows 32767 bind parameters). */
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    /** Adds the delta of each wallet with one UPDATE ... FROM (VALUES ...) per chunk; ids in lock order. */
+    private static void updateWallets(Connection c, List<UUID> ids, UuidLongMap deltas) throws SQLException {
+        for (int from = 0; from < ids.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<UUID> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_ROWS_PER_STATEMENT));
+
+            StringBuilder sql = new StringBuilder(
+                    "update wallet w set balance = w.balance + v.delta, version = w.version + 1, updated_at = now() from (values ");
+            for (int i = 0; i < chunk.size(); i++)
+                sql.append(i == 0 ? "" : ", ").append("(?::uuid, ?::bigint)");
+            sql.append(") as v(player_id, delta) where w.player_id = v.player_id");
+
+            try (PreparedStatement ps = c.prepareStatement(sql.toString())) {
+                int i = 1;
+                for (UUID id : chunk) {
+                    ps.setObject(i++, id);
+                    ps.setLong(i++, deltas.get(id, 0L));
+                }
+                if (ps.executeUpdate() != chunk.size())
+                    throw new SQLException("WALLET_UPDATE_FAILED");
+            }
+        }
+    }
+
+    /** Writes one ledger row per applied posting with a multi-row INSERT per chunk. */
+    private static void insertPostings(Connection c, List<Posting> postings) throws SQLException {
+        for (int from = 0; from < postings.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Posting> chunk = postings.subList(from, Math.min(postings.size(), from + MAX_ROWS_PER_STATEMENT));
+
+            StringBuilder sql = new StringBuilder(
+                    "insert into econ_transfer (from_player, to_player, amount, reason, corr_id) values ");
+            for (int i = 0; i < chunk.size(); i++)
+                sql.append(i == 0 ? "" : ", ").append("(?::uuid, ?::uuid, ?, ?, ?::uuid)");
+
+            try (PreparedStatement ps = c.prepareStatement(sql.toString())) {
+                int i = 1;
+                for (Posting p : chunk) {
+                    // credit: (null -> player), debit: (player -> null)
+                    ps.setObject(i++, p.isCredit() ? null : p.playerId(), Types.OTHER);
+                    ps.setObject(i++, p.isCredit() ? p.playerId() : null, Types.OTHER);
+                    ps.setLong(i++, Math.abs(p.amount()));
+                    ps.setString(i++, p.reason().value());
+                    ps.setObject(i++, p.corrId(), Types.OTHER);
+                }
+                ps.executeUpdate();
+            }
         }
     }
 
@@ -0,0 +1,36 @@
+package dev.chrona.economy;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A single credit or debit inside a {@link EconomyService#settleBatch(java.util.List) settlement batch}.
+ *
+ * @param playerId Wallet to change
+ * @param amount   Signed amount: > 0 credits, < 0 debits the wallet
+ * @param reason   Reason written to the ledger
+ * @param corrId   Optional correlation ID for logs
+ */
+public record Posting(UUID playerId, long amount, Transfer.TransferReason reason, UUID corrId) {
+
+    public Posting {
+        Objects.requireNonNull(playerId, "playerId");
+        Objects.requireNonNull(reason, "reason");
+        if (amount == 0)
+            throw new IllegalArgumentException("amount must not be 0");
+    }
+
+    public static Posting credit(UUID playerId, long amount, Transfer.TransferReason reason, UUID corrId) {
+        if (amount <= 0) throw new IllegalArgumentException("amount must be > 0");
+        return new Posting(playerId, amount, reason, corrId);
+    }
+
+    public static Posting debit(UUID playerId, long amount, Transfer.TransferReason reason, UUID corrId) {
+        if (amount <= 0) throw new IllegalArgumentException("amount must be > 0");
+        return new Posting(playerId, -amount, reason, corrId);
+    }
+
+    public boolean isCredit() {
+        return amount > 0;
+    }
+}
@@ -0,0 +1,10 @@
+package dev.chrona.economy;
+
+/**
+ * Outcome of one {@link Posting} of a settlement batch.
+ *
+ * @param posting The posting
+ * @param applied false if the posting was rejected (debit without sufficient funds)
+ * @param balance Wallet balance after this posting (unchanged balance if rejected)
+ */
+public record PostingResult(Posting posting, boolean applied, long balance) {}
@@ -0,0 +1,35 @@
+package dev.chrona.economy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bounded LRU set of claim IDs that are known to be in econ_claim.
+ * <p>
+ * Only a shortcut for replays: a miss says nothing, the DB insert stays the source of truth.
+ */
+final class RecentClaims {
+
+    private final Map<UUID, Boolean> seen;
+
+    RecentClaims(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be > 0");
+
+        this.seen = new LinkedHashMap<>(Math.min(capacity, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized boolean contains(UUID claimId) {
+        return seen.get(claimId) != null;
+    }
+
+    synchronized void add(UUID claimId) {
+        seen.put(claimId, Boolean.TRUE);
+    }
+}
@@ -31,7 +31,8 @@ public record Transfer(UUID uuid, UUID from, UUID to, long amount, TransferReaso
         EVENT_REWARD("EVENT"),
         JOB_REWARD("JOB"),
         ADMIN_MINT("ADMIN_MINT"),
-        ADMIN_BURN("ADMIN_BURN");
+        ADMIN_BURN("ADMIN_BURN"),
+        HOLD_CAPTURE("HOLD_CAPTURE");
 
         private final String name;
 
@@ -42,5 +43,14 @@ public record Transfer(UUID uuid, UUID from, UUID to, long amount, TransferReaso
         public String value() {
             return name;
         }
+
+        /** Resolves the value stored in econ_transfer.reason (see {@link #value()}). */
+        public static TransferReason fromValue(String value) {
+            for (TransferReason reason : values()) {
+                if (reason.name.equals(value))
+                    return reason;
+            }
+            throw new IllegalArgumentException("Unknown transfer reason: " + value);
+        }
     }
 }
@@ -0,0 +1,20 @@
+package dev.chrona.economy;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Position in a player's transfer history (newest first).
+ * Points at the last row of a page; the next page starts strictly after it.
+ *
+ * @param createdAt  created_at of the last row (full DB precision)
+ * @param transferId transfer_id of the last row, tie-breaker for equal timestamps
+ */
+public record TransferCursor(Instant createdAt, UUID transferId) {
+
+    public TransferCursor {
+        Objects.requireNonNull(createdAt, "createdAt");
+        Objects.requireNonNull(transferId, "transferId");
+    }
+}
@@ -0,0 +1,16 @@
+package dev.chrona.economy;
+
+import java.util.List;
+
+/**
+ * One page of transfer history.
+ *
+ * @param transfers Transfers, newest first
+ * @param next      Cursor for the following page, or null if this was the last one
+ */
+public record TransferPage(List<Transfer> transfers, TransferCursor next) {
+
+    public TransferPage {
+        transfers = List.copyOf(transfers);
+    }
+}
@@ -0,0 +1,171 @@
+package dev.chrona.economy;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Hash map from player UUID to a long (balance, sum, ...) without boxing.
+ * <p>
+ * Keys are stored as their two 64-bit halves in primitive arrays (open addressing, linear probing),
+ * so lookups and updates allocate nothing. Not thread-safe.
+ */
+public final class UuidLongMap {
+
+    private long[] msb;
+    private long[] lsb;
+    private long[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public UuidLongMap() {
+        this(16);
+    }
+
+    public UuidLongMap(int expectedSize) {
+        int cap = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        allocate(cap);
+    }
+
+    /** Returns the value for the key, or def if absent. */
+    public long get(UUID key, long def) {
+        int i = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        return i >= 0 ? values[i] : def;
+    }
+
+    public boolean containsKey(UUID key) {
+        return find(key.getMostSignificantBits(), key.getLeastSignificantBits()) >= 0;
+    }
+
+    public void put(UUID key, long value) {
+        long hi = key.getMostSignificantBits(), lo = key.getLeastSignificantBits();
+        int i = slot(hi, lo);
+        if (!used[i]) {
+            insert(i, hi, lo, value);
+            return;
+        }
+        values[i] = value;
+    }
+
+    /** Adds delta to the value of the key (absent counts as 0) and returns the new value. */
+    public long add(UUID key, long delta) {
+        return add(key.getMostSignificantBits(), key.getLeastSignificantBits(), delta);
+    }
+
+    /** Same as {@link #add(UUID, long)} for a key given as its two halves. */
+    public long add(long keyMsb, long keyLsb, long delta) {
+        int i = slot(keyMsb, keyLsb);
+        if (!used[i]) {
+            insert(i, keyMsb, keyLsb, delta);
+            return delta;
+        }
+        return values[i] += delta;
+    }
+
+    /** Removes the key; returns false if it was absent. */
+    public boolean remove(UUID key) {
+        int i = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        if (i < 0)
+            return false;
+
+        // backward-shift deletion: move later entries of the probe chain up, so no tombstones are needed
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (!used[j])
+                break;
+            int home = hash(msb[j], lsb[j]) & mask;
+            boolean between = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (between)
+                continue;
+            msb[i] = msb[j];
+            lsb[i] = lsb[j];
+            values[i] = values[j];
+            i = j;
+        }
+        used[i] = false;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /** Calls the action for every entry (in no particular order). */
+    public void forEach(Entries action) {
+        for (int i = 0; i < used.length; i++) {
+            if (used[i])
+                action.accept(new UUID(msb[i], lsb[i]), values[i]);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Entries {
+        void accept(UUID key, long value);
+    }
+
+    // ---------- Internals ----------
+
+    private int find(long hi, long lo) {
+        int i = slot(hi, lo);
+        return used[i] ? i : -1;
+    }
+
+    /** Slot holding the key, or the free slot where it would be inserted. */
+    private int slot(long hi, long lo) {
+        int i = hash(hi, lo) & mask;
+        while (used[i] && (msb[i] != hi || lsb[i] != lo))
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    private void insert(int i, long hi, long lo, long value) {
+        used[i] = true;
+        msb[i] = hi;
+        lsb[i] = lo;
+        values[i] = value;
+        if (++size * 2 > used.length)
+            rehash();
+    }
+
+    private void rehash() {
+        long[] oldMsb = msb, oldLsb = lsb, oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldUsed.length << 1);
+        for (int j = 0; j < oldUsed.length; j++) {
+            if (!oldUsed[j])
+                continue;
+            int i = slot(oldMsb[j], oldLsb[j]);
+            used[i] = true;
+            msb[i] = oldMsb[j];
+            lsb[i] = oldLsb[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    private void allocate(int cap) {
+        msb = new long[cap];
+        lsb = new long[cap];
+        values = new long[cap];
+        used = new boolean[cap];
+        mask = cap - 1;
+    }
+
+    private static int hash(long hi, long lo) {
+        long h = hi ^ Long.rotateLeft(lo, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,38 @@
+-- V10__econ_pay_both_balances.sql
+-- econ_pay (V9) also returns the new balance of the receiver, so listeners
+-- (leaderboard) get both sides without a second round trip.
+
+drop function if exists econ_pay(uuid, uuid, bigint, uuid);
+
+create function econ_pay(p_from uuid, p_to uuid, p_amount bigint, p_corr uuid)
+returns table (from_balance bigint, to_balance bigint)
+language plpgsql
+as $$
+begin
+    if p_amount <= 0 then
+        raise exception 'INVALID_AMOUNT' using errcode = '22023';
+    end if;
+    if p_from is null or p_to is null or p_from = p_to then
+        raise exception 'INVALID_PARTIES' using errcode = '22023';
+    end if;
+
+    insert into wallet (player_id, balance, version)
+    values (p_from, 0, 0), (p_to, 0, 0)
+    on conflict (player_id) do nothing;
+
+    -- deterministic lock order: rows are sorted before they get locked
+    perform 1 from wallet w
+    where w.player_id in (p_from, p_to)
+      and not exists (select 1 from econ_hot_account h where h.player_id = w.player_id)
+    order by w.player_id
+    for update;
+
+    from_balance := econ_debit(p_from, p_amount);
+    to_balance := econ_credit(p_to, p_amount);
+
+    insert into econ_transfer (from_player, to_player, amount, reason, corr_id)
+    values (p_from, p_to, p_amount, 'PAY', p_corr);
+
+    return next;
+end;
+$$;
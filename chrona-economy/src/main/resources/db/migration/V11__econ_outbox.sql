@@ -0,0 +1,51 @@
+-- V11__econ_outbox.sql
+-- Transactional outbox for wallet changes + NOTIFY, so other servers can drop stale cache entries.
+--
+-- Every balance change of a wallet row writes an outbox row in the same transaction (trigger,
+-- so econ_pay, claims, write-behind flushes etc. are all covered) and queues a notification on
+-- channel 'econ_wallet', delivered on commit. Payload: "<txid> <origin>", origin = application_name
+-- of the writing server. The payload is the same for every row of a transaction and Postgres folds
+-- identical notifications of one transaction, so a flush of 500 wallets sends one NOTIFY, not 500;
+-- listeners read the rows of that txid from econ_outbox. Listeners that missed notifications
+-- (reconnect) catch up from econ_outbox by outbox_id.
+--
+-- Hot accounts (V9) are skipped: their wallet row is not their balance, and they are never cached.
+
+create table if not exists econ_outbox (
+  outbox_id  bigserial primary key,
+  txid       bigint not null default txid_current(),
+  player_id  uuid not null,
+  balance    bigint not null,                 -- wallet.balance after the change
+  origin     text not null,
+  created_at timestamptz not null default now()
+);
+
+create index if not exists idx_outbox_created on econ_outbox (created_at);
+create index if not exists idx_outbox_txid on econ_outbox (txid);
+
+create or replace function econ_wallet_outbox()
+returns trigger
+language plpgsql
+as $$
+declare
+    v_origin text := coalesce(current_setting('application_name', true), '');
+begin
+    if (tg_op = 'UPDATE' and new.balance = old.balance) or (tg_op = 'INSERT' and new.balance = 0) then
+        return null;
+    end if;
+    if exists (select 1 from econ_hot_account where player_id = new.player_id) then
+        return null;
+    end if;
+
+    insert into econ_outbox (player_id, balance, origin)
+    values (new.player_id, new.balance, v_origin);
+
+    perform pg_notify('econ_wallet', txid_current() || ' ' || v_origin);
+    return null;
+end;
+$$;
+
+drop trigger if exists trg_wallet_outbox on wallet;
+create trigger trg_wallet_outbox
+after insert or update of balance on wallet
+for each row execute function econ_wallet_outbox();
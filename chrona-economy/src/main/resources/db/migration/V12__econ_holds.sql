@@ -0,0 +1,177 @@
+-- V12__econ_holds.sql
+-- Two-phase holds: reserve an amount now, capture or release it later.
+--
+-- A hold only costs a short wallet lock when it is placed; for the rest of its life it is a row
+-- in econ_hold. Available balance = wallet.balance - active, unexpired holds; every debit checks
+-- the available balance. Expired holds stop counting at expires_at, the sweep only tidies status.
+-- Hot accounts (V9) can't be held: their shard fast path does not see holds.
+
+create table if not exists econ_hold (
+  hold_id     uuid primary key,
+  player_id   uuid not null references wallet(player_id) on delete cascade,
+  amount      bigint not null check (amount > 0),
+  status      text not null default 'ACTIVE',  -- ACTIVE, CAPTURED, RELEASED, EXPIRED
+  created_at  timestamptz not null default now(),
+  expires_at  timestamptz not null,
+  settled_at  timestamptz,
+  captured_to uuid
+);
+
+create index if not exists idx_hold_active_player on econ_hold (player_id) where status = 'ACTIVE';
+create index if not exists idx_hold_active_expiry on econ_hold (expires_at) where status = 'ACTIVE';
+
+-- Sum of active, unexpired holds of a wallet
+create or replace function econ_held(p_player uuid)
+returns bigint
+language sql
+stable
+as $$
+    select coalesce(sum(amount), 0)::bigint
+    from econ_hold
+    where player_id = p_player and status = 'ACTIVE' and expires_at > now();
+$$;
+
+-- econ_try_debit (V9) honouring holds. The wallet is locked first and the holds are read by a
+-- statement of their own afterwards, so holds committed while we waited for the lock are seen.
+create or replace function econ_try_debit(p_player uuid, p_amount bigint)
+returns bigint
+language plpgsql
+as $$
+declare
+    v_n       int;
+    v_total   bigint;
+    v_balance bigint;
+begin
+    select shards into v_n from econ_hot_account where player_id = p_player;
+    if found then
+        -- fast path: the shard of this transaction covers the amount
+        update wallet_shard set balance = balance - p_amount
+        where player_id = p_player and shard = econ_hot_shard(v_n) and balance >= p_amount;
+        if found then
+            return econ_balance(p_player);
+        end if;
+
+        -- slow path: take the whole account and spread the rest evenly again
+        v_total := econ_hot_lock(p_player);
+        if v_total < p_amount then
+            return null;
+        end if;
+        perform econ_hot_spread(p_player, v_total - p_amount);
+        return v_total - p_amount;
+    end if;
+
+    select balance into v_balance from wallet where player_id = p_player for update;
+    if not found or v_balance - econ_held(p_player) < p_amount then
+        return null;
+    end if;
+
+    update wallet set balance = balance - p_amount, version = version + 1, updated_at = now()
+    where player_id = p_player
+    returning balance into v_balance;
+    return v_balance;
+end;
+$$;
+
+-- Places a hold; returns the available balance afterwards. Raises EC001 if not covered.
+create or replace function econ_hold(p_hold uuid, p_player uuid, p_amount bigint, p_ttl interval)
+returns bigint
+language plpgsql
+as $$
+declare
+    v_balance   bigint;
+    v_available bigint;
+begin
+    if p_amount <= 0 then
+        raise exception 'INVALID_AMOUNT' using errcode = '22023';
+    end if;
+    if exists (select 1 from econ_hot_account where player_id = p_player) then
+        raise exception 'HOLD_ON_HOT_ACCOUNT' using errcode = '22023';
+    end if;
+
+    insert into wallet (player_id, balance, version) values (p_player, 0, 0)
+    on conflict (player_id) do nothing;
+
+    select balance into v_balance from wallet where player_id = p_player for update;
+    v_available := v_balance - econ_held(p_player);
+    if v_available < p_amount then
+        raise exception 'INSUFFICIENT_FUNDS' using errcode = 'EC001';
+    end if;
+
+    insert into econ_hold (hold_id, player_id, amount, expires_at)
+    values (p_hold, p_player, p_amount, now() + p_ttl);
+
+    return v_available - p_amount;
+end;
+$$;
+
+-- Captures an active hold: debits the holder and credits p_to (null = amount leaves circulation).
+-- Raises EC002 if the hold is not active (captured, released, expired or unknown).
+create or replace function econ_capture(p_hold uuid, p_to uuid)
+returns table (holder_id uuid, held_amount bigint, from_balance bigint, to_balance bigint)
+language plpgsql
+as $$
+declare
+    v_player uuid;
+    v_amount bigint;
+begin
+    update econ_hold h
+    set status = 'CAPTURED', settled_at = now(), captured_to = p_to
+    where h.hold_id = p_hold and h.status = 'ACTIVE' and h.expires_at > now()
+    returning h.player_id, h.amount into v_player, v_amount;
+    if not found then
+        raise exception 'HOLD_NOT_ACTIVE' using errcode = 'EC002';
+    end if;
+    if v_player = p_to then
+        raise exception 'INVALID_PARTIES' using errcode = '22023';
+    end if;
+
+    if p_to is not null then
+        insert into wallet (player_id, balance, version) values (p_to, 0, 0)
+        on conflict do nothing;
+    end if;
+
+    -- same lock order as econ_pay
+    perform 1 from wallet w
+    where w.player_id in (v_player, p_to)
+      and not exists (select 1 from econ_hot_account x where x.player_id = w.player_id)
+    order by w.player_id
+    for update;
+
+    -- the hold reserved the amount, so this can only fail if the invariant is broken
+    from_balance := econ_debit(v_player, v_amount);
+    if p_to is not null then
+        to_balance := econ_credit(p_to, v_amount);
+    end if;
+
+    insert into econ_transfer (from_player, to_player, amount, reason, corr_id)
+    values (v_player, p_to, v_amount, 'HOLD_CAPTURE', p_hold);
+
+    holder_id := v_player;
+    held_amount := v_amount;
+    return next;
+end;
+$$;
+
+-- Marks up to p_batch expired holds as EXPIRED; concurrent sweeps skip each other's rows.
+create or replace function econ_sweep_holds(p_batch int)
+returns int
+language plpgsql
+as $$
+declare
+    v_count int;
+begin
+    with expired as (
+        select hold_id from econ_hold
+        where status = 'ACTIVE' and expires_at <= now()
+        order by expires_at
+        limit p_batch
+        for update skip locked
+    )
+    update econ_hold h set status = 'EXPIRED', settled_at = now()
+    from expired e
+    where h.hold_id = e.hold_id;
+
+    get diagnostics v_count = row_count;
+    return v_count;
+end;
+$$;
@@ -0,0 +1,44 @@
+-- V5__econ_pay_fn.sql
+-- Player payment in a single round trip.
+--
+-- Locks both wallets in player_id order, so two players paying each other at the
+-- same time can't deadlock, and writes one ledger row (from -> to, amount > 0).
+-- Returns the new balance of the sender.
+
+create or replace function econ_pay(p_from uuid, p_to uuid, p_amount bigint, p_corr uuid)
+returns bigint
+language plpgsql
+as $$
+declare
+    v_from_balance bigint;
+begin
+    if p_amount <= 0 then
+        raise exception 'INVALID_AMOUNT' using errcode = '22023';
+    end if;
+    if p_from is null or p_to is null or p_from = p_to then
+        raise exception 'INVALID_PARTIES' using errcode = '22023';
+    end if;
+
+    insert into wallet (player_id, balance, version)
+    values (p_from, 0, 0), (p_to, 0, 0)
+    on conflict (player_id) do nothing;
+
+    -- deterministic lock order: rows are sorted before they get locked
+    perform 1 from wallet where player_id in (p_from, p_to) order by player_id for update;
+
+    select balance into v_from_balance from wallet where player_id = p_from;
+    if v_from_balance < p_amount then
+        raise exception 'INSUFFICIENT_FUNDS' using errcode = 'EC001';
+    end if;
+
+    update wallet set balance = balance - p_amount, version = version + 1, updated_at = now()
+    where player_id = p_from;
+    update wallet set balance = balance + p_amount, version = version + 1, updated_at = now()
+    where player_id = p_to;
+
+    insert into econ_transfer (from_player, to_player, amount, reason, corr_id)
+    values (p_from, p_to, p_amount, 'PAY', p_corr);
+
+    return v_from_balance - p_amount;
+end;
+$$;
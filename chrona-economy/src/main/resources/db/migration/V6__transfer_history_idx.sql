@@ -0,0 +1,13 @@
+-- V6__transfer_history_idx.sql
+-- Keyset pagination for transfer history: (player, created_at desc, transfer_id desc)
+-- per side, so each half of the UNION ALL in PgEconomy.forEachTransfer is a plain index range scan.
+
+create index if not exists idx_transfer_from_created
+    on econ_transfer (from_player, created_at desc, transfer_id desc);
+
+create index if not exists idx_transfer_to_created
+    on econ_transfer (to_player, created_at desc, transfer_id desc);
+
+-- covered by the composite indexes (same leading column)
+drop index if exists idx_transfer_from;
+drop index if exists idx_transfer_to;
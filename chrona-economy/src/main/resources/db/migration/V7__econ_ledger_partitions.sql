@@ -0,0 +1,177 @@
+-- V7__econ_ledger_partitions.sql
+-- econ_transfer as monthly range partitions on created_at + periodic balance snapshots.
+--
+-- Old months can be detached/archived without touching the hot partition, and
+-- snapshots let reconciliation / history reads start at a recent point instead of
+-- summing the whole ledger.
+
+-- ---------- Partitioned ledger ----------
+
+alter table econ_transfer rename to econ_transfer_legacy;
+alter table econ_transfer_legacy rename constraint econ_transfer_pkey to econ_transfer_legacy_pkey;
+
+create table econ_transfer (
+  transfer_id uuid not null default gen_random_uuid(),
+  from_player uuid references player(id) on delete set null,
+  to_player   uuid references player(id) on delete set null,
+  amount      bigint not null check (amount > 0),
+  reason      text not null,
+  corr_id     uuid,
+  created_at  timestamptz not null default now(),
+  check ( (from_player is not null) or (to_player is not null) ),
+  -- the partition key has to be part of the primary key
+  primary key (transfer_id, created_at)
+) partition by range (created_at);
+
+-- catches rows outside of the created months (e.g. clock skew); should stay empty
+create table econ_transfer_default partition of econ_transfer default;
+
+-- Creates the partition for the month containing p_month, if missing. Returns true if created.
+-- Rows of that month already in the default partition would make CREATE fail (and every later
+-- ensure call with it), so in that case the default is detached, the partition created, the rows
+-- moved over and the default attached again.
+create or replace function econ_create_transfer_partition(p_month date)
+returns boolean
+language plpgsql
+as $$
+declare
+    v_from date := date_trunc('month', p_month)::date;
+    v_to   date := (v_from + interval '1 month')::date;
+    v_name text := 'econ_transfer_' || to_char(v_from, 'YYYYMM');
+begin
+    if to_regclass(v_name) is not null then
+        return false;
+    end if;
+
+    if not exists (select 1 from econ_transfer_default where created_at >= v_from and created_at < v_to) then
+        execute format('create table %I partition of econ_transfer for values from (%L) to (%L)',
+                       v_name, v_from, v_to);
+        return true;
+    end if;
+
+    alter table econ_transfer detach partition econ_transfer_default;
+    execute format('create table %I partition of econ_transfer for values from (%L) to (%L)',
+                   v_name, v_from, v_to);
+    with moved as (
+        delete from econ_transfer_default
+        where created_at >= v_from and created_at < v_to
+        returning *
+    )
+    insert into econ_transfer select * from moved;
+    alter table econ_transfer attach partition econ_transfer_default default;
+    return true;
+end;
+$$;
+
+-- Makes sure partitions exist for the current month and p_months_ahead following months.
+-- Returns the number of created partitions.
+create or replace function econ_ensure_transfer_partitions(p_months_ahead int default 3)
+returns int
+language plpgsql
+as $$
+declare
+    v_created int := 0;
+begin
+    for i in 0..greatest(p_months_ahead, 0) loop
+        if econ_create_transfer_partition((date_trunc('month', now()) + make_interval(months => i))::date) then
+            v_created := v_created + 1;
+        end if;
+    end loop;
+    return v_created;
+end;
+$$;
+
+-- partitions for the existing history, then move it over
+do $$
+declare
+    v_month date;
+begin
+    select date_trunc('month', coalesce(min(created_at), now()))::date into v_month from econ_transfer_legacy;
+    while v_month < date_trunc('month', now())::date loop
+        perform econ_create_transfer_partition(v_month);
+        v_month := (v_month + interval '1 month')::date;
+    end loop;
+end;
+$$;
+
+select econ_ensure_transfer_partitions(3);
+
+insert into econ_transfer (transfer_id, from_player, to_player, amount, reason, corr_id, created_at)
+select transfer_id, from_player, to_player, amount, reason, corr_id, created_at
+from econ_transfer_legacy;
+
+drop table econ_transfer_legacy;
+
+create index if not exists idx_transfer_from_created
+    on econ_transfer (from_player, created_at desc, transfer_id desc);
+create index if not exists idx_transfer_to_created
+    on econ_transfer (to_player, created_at desc, transfer_id desc);
+create index if not exists idx_transfer_created
+    on econ_transfer (created_at);
+
+-- ---------- Postings ----------
+
+-- Effect of each ledger row on wallet balances: receiver +amount, sender -amount.
+-- ADMIN_MINT stores the issuing admin as from_player, which is not debited.
+create or replace view econ_posting as
+select to_player as player_id, amount, created_at
+from econ_transfer
+where to_player is not null
+union all
+select from_player as player_id, -amount, created_at
+from econ_transfer
+where from_player is not null and reason <> 'ADMIN_MINT';
+
+-- ---------- Balance snapshots ----------
+
+create table if not exists econ_balance_snapshot (
+  snapshot_id bigserial primary key,
+  as_of       timestamptz not null unique,     -- covers all postings with created_at < as_of
+  taken_at    timestamptz not null default now()
+);
+
+create table if not exists econ_balance_snapshot_entry (
+  snapshot_id bigint not null references econ_balance_snapshot(snapshot_id) on delete cascade,
+  player_id   uuid not null,
+  balance     bigint not null,
+  primary key (snapshot_id, player_id)
+);
+
+-- Rolls the latest snapshot forward to now() - p_lag using only the postings since then
+-- (partition pruning keeps this on the recent months). The lag leaves room for transactions
+-- that started before as_of but have not committed yet. Returns the new (or latest) snapshot id.
+create or replace function econ_take_balance_snapshot(p_lag interval default interval '5 minutes')
+returns bigint
+language plpgsql
+as $$
+declare
+    v_prev_id    bigint;
+    v_prev_as_of timestamptz;
+    v_as_of      timestamptz := now() - p_lag;
+    v_id         bigint;
+begin
+    select snapshot_id, as_of into v_prev_id, v_prev_as_of
+    from econ_balance_snapshot order by as_of desc limit 1;
+
+    if v_prev_as_of is not null and v_prev_as_of >= v_as_of then
+        return v_prev_id;
+    end if;
+
+    insert into econ_balance_snapshot (as_of) values (v_as_of) returning snapshot_id into v_id;
+
+    insert into econ_balance_snapshot_entry (snapshot_id, player_id, balance)
+    select v_id, player_id, sum(balance)
+    from (
+        select player_id, balance
+        from econ_balance_snapshot_entry
+        where snapshot_id = v_prev_id
+        union all
+        select player_id, amount
+        from econ_posting
+        where created_at >= coalesce(v_prev_as_of, '-infinity'::timestamptz) and created_at < v_as_of
+    ) x
+    group by player_id;
+
+    return v_id;
+end;
+$$;
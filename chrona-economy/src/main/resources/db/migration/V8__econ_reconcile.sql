@@ -0,0 +1,24 @@
+-- V8__econ_reconcile.sql
+-- Bookkeeping for LedgerReconciler: wallet.balance vs. latest snapshot + postings since.
+
+create table if not exists econ_reconcile_run (
+  run_id         bigserial primary key,
+  snapshot_id    bigint,                        -- base snapshot (null = whole ledger)
+  snapshot_as_of timestamptz,
+  started_at     timestamptz not null default now(),
+  finished_at    timestamptz,
+  last_player    uuid,                          -- checkpoint: wallets up to here are checked
+  checked        bigint not null default 0,
+  drift_count    bigint not null default 0,
+  status         text not null default 'RUNNING' -- RUNNING, DONE, FAILED
+);
+
+create index if not exists idx_reconcile_run_status on econ_reconcile_run (status, started_at desc);
+
+create table if not exists econ_reconcile_drift (
+  run_id         bigint not null references econ_reconcile_run(run_id) on delete cascade,
+  player_id      uuid not null,
+  wallet_balance bigint not null,
+  ledger_balance bigint not null,
+  primary key (run_id, player_id)
+);
@@ -0,0 +1,236 @@
+-- V9__econ_hot_accounts.sql
+-- Striped balances for designated system accounts (treasury, fee/tax sinks).
+--
+-- The balance of a hot account is wallet.balance + sum(wallet_shard.balance). A write only
+-- locks one shard row (picked per transaction), so concurrent writers no longer queue up on
+-- the single wallet row. Lock order stays: regular wallets (player_id order) -> hot wallet row
+-- -> its shards (shard order).
+
+create table if not exists econ_hot_account (
+  player_id uuid primary key references wallet(player_id) on delete cascade,
+  shards    int not null check (shards between 1 and 1024)
+);
+
+create table if not exists wallet_shard (
+  player_id uuid not null references econ_hot_account(player_id) on delete cascade,
+  shard     int not null,
+  balance   bigint not null default 0 check (balance >= 0),
+  primary key (player_id, shard)
+);
+
+-- Balance incl. shards; use this instead of wallet.balance for reads
+create or replace view econ_wallet_balance as
+select w.player_id,
+       w.balance + coalesce((select sum(s.balance) from wallet_shard s where s.player_id = w.player_id), 0)::bigint
+           as balance
+from wallet w;
+
+create or replace function econ_balance(p_player uuid)
+returns bigint
+language sql
+stable
+as $$
+    select coalesce((select balance from econ_wallet_balance where player_id = p_player), 0);
+$$;
+
+-- Spreads p_total evenly over the shards of a hot account (wallet row keeps 0).
+-- Caller must hold the wallet row and all shard rows.
+create or replace function econ_hot_spread(p_player uuid, p_total bigint)
+returns void
+language plpgsql
+as $$
+declare
+    v_n int;
+begin
+    select shards into v_n from econ_hot_account where player_id = p_player;
+
+    update wallet set balance = 0, version = version + 1, updated_at = now()
+    where player_id = p_player and balance <> 0;
+
+    update wallet_shard
+    set balance = p_total / v_n + case when shard < p_total % v_n then 1 else 0 end
+    where player_id = p_player;
+end;
+$$;
+
+-- Locks the wallet row and all shards of a hot account in lock order; returns the total.
+create or replace function econ_hot_lock(p_player uuid)
+returns bigint
+language plpgsql
+as $$
+begin
+    perform 1 from wallet where player_id = p_player for update;
+    perform 1 from wallet_shard where player_id = p_player order by shard for update;
+    return econ_balance(p_player);
+end;
+$$;
+
+-- Shard written by the current transaction: stable within a transaction (no second shard lock),
+-- consecutive transactions spread over all shards.
+create or replace function econ_hot_shard(p_shards int)
+returns int
+language sql
+volatile
+as $$
+    select (txid_current() % p_shards)::int;
+$$;
+
+-- Adds p_amount; returns the new balance. Regular wallets must already be locked by the caller.
+create or replace function econ_credit(p_player uuid, p_amount bigint)
+returns bigint
+language plpgsql
+as $$
+declare
+    v_n       int;
+    v_balance bigint;
+begin
+    select shards into v_n from econ_hot_account where player_id = p_player;
+    if found then
+        update wallet_shard set balance = balance + p_amount
+        where player_id = p_player and shard = econ_hot_shard(v_n);
+        return econ_balance(p_player);
+    end if;
+
+    update wallet set balance = balance + p_amount, version = version + 1, updated_at = now()
+    where player_id = p_player
+    returning balance into v_balance;
+    if not found then
+        raise exception 'WALLET_NOT_FOUND' using errcode = 'P0002';
+    end if;
+    return v_balance;
+end;
+$$;
+
+-- Subtracts p_amount if covered; returns the new balance or null (insufficient funds).
+create or replace function econ_try_debit(p_player uuid, p_amount bigint)
+returns bigint
+language plpgsql
+as $$
+declare
+    v_n       int;
+    v_total   bigint;
+    v_balance bigint;
+begin
+    select shards into v_n from econ_hot_account where player_id = p_player;
+    if found then
+        -- fast path: the shard of this transaction covers the amount
+        update wallet_shard set balance = balance - p_amount
+        where player_id = p_player and shard = econ_hot_shard(v_n) and balance >= p_amount;
+        if found then
+            return econ_balance(p_player);
+        end if;
+
+        -- slow path: take the whole account and spread the rest evenly again
+        v_total := econ_hot_lock(p_player);
+        if v_total < p_amount then
+            return null;
+        end if;
+        perform econ_hot_spread(p_player, v_total - p_amount);
+        return v_total - p_amount;
+    end if;
+
+    update wallet set balance = balance - p_amount, version = version + 1, updated_at = now()
+    where player_id = p_player and balance >= p_amount
+    returning balance into v_balance;
+    return v_balance;
+end;
+$$;
+
+create or replace function econ_debit(p_player uuid, p_amount bigint)
+returns bigint
+language plpgsql
+as $$
+declare
+    v_balance bigint;
+begin
+    v_balance := econ_try_debit(p_player, p_amount);
+    if v_balance is null then
+        raise exception 'INSUFFICIENT_FUNDS' using errcode = 'EC001';
+    end if;
+    return v_balance;
+end;
+$$;
+
+-- Makes a wallet a hot account with p_shards sub-rows (or changes the shard count).
+create or replace function econ_hot_account_enable(p_player uuid, p_shards int)
+returns void
+language plpgsql
+as $$
+declare
+    v_total bigint;
+begin
+    insert into econ_hot_account (player_id, shards) values (p_player, p_shards)
+    on conflict (player_id) do update set shards = excluded.shards;
+
+    v_total := econ_hot_lock(p_player);
+    delete from wallet_shard where player_id = p_player and shard >= p_shards;
+    insert into wallet_shard (player_id, shard)
+    select p_player, g from generate_series(0, p_shards - 1) g
+    on conflict do nothing;
+    perform econ_hot_spread(p_player, v_total);
+end;
+$$;
+
+-- Folds the shards back into the wallet row and turns the account into a regular wallet.
+create or replace function econ_hot_account_disable(p_player uuid)
+returns void
+language plpgsql
+as $$
+declare
+    v_total bigint;
+begin
+    v_total := econ_hot_lock(p_player);
+    delete from econ_hot_account where player_id = p_player;
+    update wallet set balance = v_total, version = version + 1, updated_at = now()
+    where player_id = p_player;
+end;
+$$;
+
+-- Periodic fold of one hot account: sums it and spreads it evenly again, so debits keep hitting
+-- the fast path. LedgerMaintenance calls this once per account in autocommit, so every account is
+-- a short transaction of its own and the shard locks are not held across accounts.
+create or replace function econ_fold_hot_account(p_player uuid)
+returns void
+language plpgsql
+as $$
+begin
+    perform econ_hot_spread(p_player, econ_hot_lock(p_player));
+end;
+$$;
+
+-- econ_pay (V5) with hot accounts: only regular wallets are locked up front,
+-- the debit/credit helpers take care of shards.
+create or replace function econ_pay(p_from uuid, p_to uuid, p_amount bigint, p_corr uuid)
+returns bigint
+language plpgsql
+as $$
+declare
+    v_from_balance bigint;
+begin
+    if p_amount <= 0 then
+        raise exception 'INVALID_AMOUNT' using errcode = '22023';
+    end if;
+    if p_from is null or p_to is null or p_from = p_to then
+        raise exception 'INVALID_PARTIES' using errcode = '22023';
+    end if;
+
+    insert into wallet (player_id, balance, version)
+    values (p_from, 0, 0), (p_to, 0, 0)
+    on conflict (player_id) do nothing;
+
+    -- deterministic lock order: rows are sorted before they get locked
+    perform 1 from wallet w
+    where w.player_id in (p_from, p_to)
+      and not exists (select 1 from econ_hot_account h where h.player_id = w.player_id)
+    order by w.player_id
+    for update;
+
+    v_from_balance := econ_debit(p_from, p_amount);
+    perform econ_credit(p_to, p_amount);
+
+    insert into econ_transfer (from_player, to_player, amount, reason, corr_id)
+    values (p_from, p_to, p_amount, 'PAY', p_corr);
+
+    return v_from_balance;
+end;
+$$;
@@ -0,0 +1,117 @@
+package dev.chrona.economy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryEconomyTest {
+
+    private static final UUID ADMIN = new UUID(0, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void payMovesMoneyAndChecksFunds() throws Exception {
+        UUID a = UUID.randomUUID(), b = UUID.randomUUID();
+        try (MemoryEconomy econ = new MemoryEconomy()) {
+            econ.mint(ADMIN, a, 100, null);
+
+            assertEquals(70, econ.pay(a, b, 30));
+            assertEquals(30, econ.getBalance(b));
+            assertThrows(SQLException.class, () -> econ.pay(a, b, 71));
+            assertEquals(70, econ.getBalance(a));
+        }
+    }
+
+    @Test
+    void claimOnceIsIdempotentAcrossRestarts() throws Exception {
+        Path journal = dir.resolve("claims.journal");
+        UUID player = UUID.randomUUID(), claim = UUID.randomUUID();
+
+        try (MemoryEconomy econ = new MemoryEconomy(journal, Duration.ofSeconds(1))) {
+            assertEquals(50, econ.claimOnce(player, claim, 50, "TEST"));
+            assertEquals(50, econ.claimOnce(player, claim, 50, "TEST"));
+        }
+        try (MemoryEconomy econ = new MemoryEconomy(journal, Duration.ofSeconds(1))) {
+            assertEquals(50, econ.getBalance(player));
+            assertEquals(50, econ.claimOnce(player, claim, 50, "TEST"));
+        }
+    }
+
+    @Test
+    void holdsReserveFundsAndReplay() throws Exception {
+        Path journal = dir.resolve("holds.journal");
+        UUID a = UUID.randomUUID(), b = UUID.randomUUID();
+
+        UUID captured, open;
+        try (MemoryEconomy econ = new MemoryEconomy(journal, Duration.ZERO)) {
+            econ.mint(ADMIN, a, 100, null);
+            captured = econ.hold(a, 40, Duration.ofMinutes(5));
+            open = econ.hold(a, 50, Duration.ofMinutes(5));
+
+            // 100 - 40 - 50 available
+            assertThrows(SQLException.class, () -> econ.burn(ADMIN, a, 11, null));
+            assertEquals(60, econ.capture(captured, b));
+            assertThrows(SQLException.class, () -> econ.capture(captured, b));
+        }
+        try (MemoryEconomy econ = new MemoryEconomy(journal, Duration.ZERO)) {
+            assertEquals(60, econ.getBalance(a));
+            assertEquals(40, econ.getBalance(b));
+            // the open hold is still there after the replay
+            assertThrows(SQLException.class, () -> econ.pay(a, b, 11));
+            assertTrue(econ.release(open));
+            assertEquals(0, econ.pay(a, b, 60));
+        }
+    }
+
+    @Test
+    void concurrentPaymentsKeepTheTotal() throws Exception {
+        int wallets = 32, threads = 8, paysPerThread = 5_000;
+        UUID[] ids = new UUID[wallets];
+        for (int i = 0; i < wallets; i++)
+            ids[i] = UUID.randomUUID();
+
+        try (MemoryEconomy econ = new MemoryEconomy(dir.resolve("pay.journal"), Duration.ofMillis(50))) {
+            for (UUID id : ids)
+                econ.mint(ADMIN, id, 1_000, null);
+
+            AtomicLong failed = new AtomicLong();
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                    for (int i = 0; i < paysPerThread; i++) {
+                        int from = rnd.nextInt(wallets), to = (from + 1 + rnd.nextInt(wallets - 1)) % wallets;
+                        try {
+                            econ.pay(ids[from], ids[to], 1 + rnd.nextInt(50));
+                        }
+                        catch (SQLException e) {
+                            failed.incrementAndGet();   // insufficient funds is fine here
+                        }
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread w : workers)
+                w.join();
+
+            long total = 0;
+            for (UUID id : ids) {
+                long balance = econ.getBalance(id);
+                assertTrue(balance >= 0, "negative balance");
+                total += balance;
+            }
+            assertEquals(wallets * 1_000L, total);
+            assertTrue(failed.get() < (long) threads * paysPerThread);
+        }
+    }
+}
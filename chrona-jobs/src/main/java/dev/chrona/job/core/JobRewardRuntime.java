@@ -1,42 +1,64 @@
 package dev.chrona.job.core;
 
+import dev.chrona.common.db.AppendPipeline;
+import dev.chrona.common.db.MultiRowInsert;
 import dev.chrona.economy.EconomyService;
+import dev.chrona.job.api.Job;
 import javax.sql.DataSource;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Supplier;
 
-public final class JobRewardRuntime implements JobRuntime {
+public final class JobRewardRuntime implements JobRuntime, AutoCloseable {
     private final EconomyService econ;
     private final DataSource ds;
     private final Supplier<String> season;
+    // job_run ist reine Analytics: gesammelt schreiben, nie die Auszahlung aufhalten
+    private final AppendPipeline<JobRun> runs;
+
+    private record JobRun(UUID id, UUID playerId, String jobId, String season, String payload, Instant at) {}
 
     public JobRewardRuntime(EconomyService econ, DataSource ds, Supplier<String> season) {
         this.econ = econ; this.ds = ds; this.season = season;
+        this.runs = new AppendPipeline<>("job_run", ds,
+                new MultiRowInsert<JobRun>("job_run", "id, player_id, job_id, season, payload, created_at",
+                        "(?, ?, ?, ?, to_json(?::text), ?)",
+                        (ps, i, r) -> {
+                            ps.setObject(i, r.id());
+                            ps.setObject(i + 1, r.playerId());
+                            ps.setString(i + 2, r.jobId());
+                            ps.setString(i + 3, r.season());
+                            ps.setString(i + 4, r.payload());
+                            ps.setTimestamp(i + 5, Timestamp.from(r.at()));
+                        }),
+                AppendPipeline.Settings.defaults());
     }
 
-    @Override
-    public void reward(UUID playerId, String jobId, long amount, Map<String,Object> payload) {
-        UUID jobRunId = UUID.randomUUID();
-        // persist job_run (optional analytics)
+    /** Legt die job-Zeile an (job_run.job_id referenziert job(id)); beim Aktivieren eines Jobs aufrufen. */
+    public void register(Job job) throws SQLException {
         try (Connection c = ds.getConnection();
-             PreparedStatement ps = c.prepareStatement("""
-               insert into job_run (id, player_id, job_id, season, payload)
-               values (?,?,?,?, to_json(?::text))
-             """)) {
-            ps.setObject(1, jobRunId);
-            ps.setObject(2, playerId);
-            ps.setString(3, jobId);
-            ps.setString(4, season.get());
-            ps.setString(5, payload == null ? "{}" : payload.toString());
+             PreparedStatement ps = c.prepareStatement(
+                     "insert into job (id, display_name) values (?, ?) " +
+                             "on conflict (id) do update set display_name = excluded.display_name")) {
+            ps.setString(1, job.id());
+            ps.setString(2, job.displayName());
             ps.executeUpdate();
-        } catch (Exception e) {
-            // nicht fatal für Auszahlung
         }
+    }
+
+    @Override
+    public void reward(UUID playerId, String jobId, long amount, Map<String,Object> payload) {
+        UUID jobRunId = UUID.randomUUID();
+        // persist job_run (optional analytics, nicht fatal für Auszahlung)
+        runs.append(new JobRun(jobRunId, playerId, jobId, season.get(),
+                payload == null ? "{}" : payload.toString(), Instant.now()));
         // deterministische claimId: run + player
         UUID claimId = UUID.nameUUIDFromBytes((jobRunId.toString() + playerId).getBytes(StandardCharsets.UTF_8));
         try {
@@ -50,4 +72,10 @@ public final class JobRewardRuntime implements JobRuntime {
         // V1 Stub: always level 1
         return Optional.of(new JobPlayerState(1, 0));
     }
+
+    /** Writes pending job_run rows; call on disable. */
+    @Override
+    public void close() {
+        runs.close();
+    }
 }
@@ -1,5 +1,7 @@
 package dev.chrona.plugin;
 
+import dev.chrona.common.db.AppendPipeline;
+import dev.chrona.common.db.TelemetryMaintenance;
 import dev.chrona.common.dialogue.DialogueService;
 import dev.chrona.common.hologram.protocol.ProtocolHolograms;
 import dev.chrona.common.log.ChronaLog;
@@ -9,6 +11,15 @@ import dev.chrona.common.npc.api.SkinService;
 import dev.chrona.common.npc.protocol.NpcController;
 import dev.chrona.common.npc.protocol.ProtocolNpcs;
 import dev.chrona.common.region.*;
+import dev.chrona.economy.AsyncEconomy;
+import dev.chrona.economy.AsyncEconomyService;
+import dev.chrona.economy.CachedEconomy;
+import dev.chrona.economy.EconomyService;
+import dev.chrona.economy.Leaderboard;
+import dev.chrona.economy.LedgerMaintenance;
+import dev.chrona.economy.LedgerReconciler;
+import dev.chrona.economy.MemoryEconomy;
+import dev.chrona.economy.OutboxListener;
 import dev.chrona.economy.PgEconomy;
 import dev.chrona.economy.PlayerRepo;
 import dev.chrona.job.core.*;
@@ -26,13 +37,26 @@ import dev.chrona.common.Db;
 
 import javax.sql.DataSource;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.UUID;
 
 public final class ChronaPlugin extends JavaPlugin {
 
     private ProtocolHolograms holoService;
-    private PgEconomy econ;
+    private EconomyService economy;
+    // postgres backend (default); null with economy.backend: memory
+    private CachedEconomy econ;
+    private MemoryEconomy memoryEcon;
+    private AsyncEconomy asyncEcon;
+    private Leaderboard leaderboard;
+    private OutboxListener outbox;
     private MinigameManager minigames;
     private ProtocolNpcs npcs;
     private PlayerRepo playerRepo;
@@ -41,22 +65,43 @@ public final class ChronaPlugin extends JavaPlugin {
     private DialogueService dialogueService;
     private RegionService regionService;
     private RegionVisitLogService regionVisitLogService;
+    private RegionFileWatcher regionWatcher;
+    private JobRewardRuntime jobRuntime;
 
     @Override
     public void onEnable() {
         saveDefaultConfig();
 
+        configurePools();
         Db.migrate(this.getClassLoader(), "classpath:db/migration");
         LoggingBootstrap.init(getDataFolder().toPath(), true);
-        DataSource ds = getDs();
+        // money movement, gameplay state and logging/background work never share connections
+        DataSource econDs = Db.ds(Db.Pool.ECONOMY);
+        DataSource gameplayDs = Db.ds(Db.Pool.GAMEPLAY);
+        DataSource telemetryDs = Db.ds(Db.Pool.TELEMETRY);
+        DataSource maintenanceDs = Db.ds(Db.Pool.MAINTENANCE);
         var logger = ChronaLog.get(ChronaPlugin.class);
 
         holoService = new ProtocolHolograms();
-        econ = new PgEconomy(ds);
+        PgEconomy pgEcon = null;
+        if ("memory".equalsIgnoreCase(getConfig().getString("economy.backend", "postgres"))) {
+            memoryEcon = openMemoryEconomy();
+            economy = memoryEcon;
+        }
+        else {
+            pgEcon = new PgEconomy(econDs, getConfig().getInt("economy.recent-claims", 10_000));
+            configureHotAccounts(pgEcon);
+            econ = new CachedEconomy(pgEcon, econDs,
+                    Duration.ofMillis(getConfig().getLong("economy.cache.flush-interval-ms", 250L)),
+                    getConfig().getInt("economy.cache.max-batch", 500));
+            economy = econ;
+        }
+        asyncEcon = new AsyncEconomy(economy, getConfig().getInt("economy.async.max-in-flight", 64),
+                r -> Bukkit.getScheduler().runTask(this, r));
         minigames = Minigames.init(this);
         npcCtrl = new NpcController();
         npcs = new ProtocolNpcs(this, npcCtrl);
-        playerRepo = new PlayerRepo(ds);
+        playerRepo = new PlayerRepo(econDs);
 
         SkinService skins = new SkinService();
         NpcPersistence.NpcFactory factory = (loc, name, skin) -> getNpcs().create(loc, name, skin);
@@ -74,6 +119,18 @@ public final class ChronaPlugin extends JavaPlugin {
             }
         });
 
+        long telemetryPeriod = 20L * 60 * getConfig().getLong("telemetry.maintenance-interval-minutes", 60L);
+        TelemetryMaintenance telemetry = new TelemetryMaintenance(maintenanceDs,
+                getConfig().getInt("telemetry.partitions-ahead-days", 7),
+                getConfig().getInt("telemetry.partitions-ahead-months", 2), telemetryRetention());
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, telemetry, 20L * 45, telemetryPeriod);
+
+        leaderboard = new Leaderboard(maintenanceDs, getConfig().getInt("economy.leaderboard.size", 100),
+                Duration.ofMinutes(getConfig().getLong("economy.leaderboard.reseed-minutes", 10L)),
+                pgEcon != null ? pgEcon::isHotAccount : id -> false);
+        if (econ != null)
+            startPgEconomy(maintenanceDs);
+
         Bukkit.getScheduler().runTaskTimer(this, () -> {
             persistence.saveAll(npcCtrl.runtimes());
         }, 1200L, 1200L);
@@ -83,24 +140,27 @@ public final class ChronaPlugin extends JavaPlugin {
         initRegions();
         initRegionLogging();
 
-        registerCommand("wallet", new WalletCmd(econ));
-        registerCommand("pay", new PayCmd(econ));
-        registerCommand("econ", new EconCmd(econ));
+        WalletCmd walletCmd = new WalletCmd(asyncEcon);
+        registerCommand("wallet", walletCmd);
+        registerCommand("pay", new PayCmd(asyncEcon));
+        registerCommand("econ", new EconCmd(asyncEcon));
+        registerCommand("baltop", new BaltopCmd(leaderboard));
         registerCommand("minergive", new MinerGiveCmd());
         registerCommand("npcpath", new NpcPathCommand(this));
         registerCommand("npc", npcCmd);
         registerCommand("dialogue", new DialogueCmd(dialogueService));
 
-        registerEvent(new JoinListener(this, playerRepo));
+        registerEvent(new JoinListener(this, playerRepo, econ));
         registerEvent(npcs);
         registerEvent(new DialogueListener(dialogueService));
+        registerEvent(walletCmd);
 
         Objects.requireNonNull(getCommand("npc")).setTabCompleter(npcCmd);
 
         String season = getConfig().getString("season", "S1");
         JobConfigProvider cfgProvider = new ClasspathSeasonConfigProvider(season, getClassLoader(), getDataFolder().toPath());
-        JobContext ctx = new JobContext(this, ds, econ, minigames, holoService, cfgProvider);
-        JobRuntime runtime = new JobRewardRuntime(econ, ds, () -> season);
+        JobContext ctx = new JobContext(this, gameplayDs, economy, minigames, holoService, cfgProvider);
+        jobRuntime = new JobRewardRuntime(economy, telemetryDs, () -> season);
 
         var enabled = getConfig().getStringList("jobs.enabled");
         var all = Jobs.available();
@@ -109,15 +169,123 @@ public final class ChronaPlugin extends JavaPlugin {
             if (job == null) {
                 logger.warn("Unknown job in config: {}", id);
                 return; }
+            try {
+                jobRuntime.register(job);
+            }
+            catch (SQLException ex) {
+                logger.warn("Failed to register job {}, its job_run rows will be dropped", id, ex);
+            }
             job.onEnable(ctx);
-            job.listeners(runtime).forEach(l -> getServer().getPluginManager().registerEvents(l, this));
+            job.listeners(jobRuntime).forEach(l -> getServer().getPluginManager().registerEvents(l, this));
         });
 
        logger.info("Chrona up.");
     }
 
-    private static DataSource getDs() {
-        return Db.ds();
+    /** Reads telemetry.retention.&lt;table&gt; (keep-days, archive); tables without an entry are kept forever. */
+    private Map<String, TelemetryMaintenance.Retention> telemetryRetention() {
+        Map<String, TelemetryMaintenance.Retention> retention = new HashMap<>();
+        var section = getConfig().getConfigurationSection("telemetry.retention");
+        if (section == null)
+            return retention;
+        for (String table : section.getKeys(false)) {
+            long days = section.getLong(table + ".keep-days", 0L);
+            if (days <= 0)
+                continue;
+            retention.put(table, new TelemetryMaintenance.Retention(Duration.ofDays(days),
+                    section.getBoolean(table + ".archive", false)));
+        }
+        return retention;
+    }
+
+    /** Reads db.pools.&lt;economy|gameplay|telemetry|maintenance&gt; from the config; missing keys keep the pool's defaults. */
+    private void configurePools() {
+        for (Db.Pool pool : Db.Pool.values()) {
+            var section = getConfig().getConfigurationSection("db.pools." + pool.key());
+            if (section == null)
+                continue;
+            Db.PoolSettings d = pool.defaults();
+            Db.configure(pool, new Db.PoolSettings(
+                    section.getInt("max-size", d.maxSize()),
+                    section.getInt("min-idle", d.minIdle()),
+                    section.getLong("connection-timeout-ms", d.connectionTimeoutMs()),
+                    section.getLong("statement-timeout-ms", d.statementTimeoutMs()),
+                    section.getBoolean("read-only", d.readOnly())));
+        }
+    }
+
+    /** Background work of the Postgres backend: wallets of online players, ledger upkeep, outbox, leaderboard. */
+    private void startPgEconomy(DataSource maintenanceDs) {
+        var log = ChronaLog.get(ChronaPlugin.class);
+
+        // wallets of players that are already online (e.g. after /reload)
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            var id = player.getUniqueId();
+            Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+                try {
+                    econ.load(id);
+                }
+                catch (Exception ex) {
+                    log.warn("Failed to load wallet for {}", id, ex);
+                }
+            });
+        }
+
+        long ledgerPeriod = 20L * 60 * getConfig().getLong("economy.ledger.maintenance-interval-minutes", 60L);
+        LedgerMaintenance ledger = new LedgerMaintenance(maintenanceDs,
+                getConfig().getInt("economy.ledger.partitions-ahead-months", 3),
+                Duration.ofMinutes(getConfig().getLong("economy.ledger.snapshot-lag-minutes", 5L)),
+                getConfig().getInt("economy.ledger.keep-snapshots", 3),
+                Duration.ofMinutes(getConfig().getLong("economy.outbox.retention-minutes", 60L)));
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, ledger, 20L * 30, ledgerPeriod);
+
+        long reconcilePeriod = 20L * 60 * getConfig().getLong("economy.reconcile.interval-minutes", 360L);
+        LedgerReconciler reconciler = new LedgerReconciler(maintenanceDs,
+                getConfig().getInt("economy.reconcile.chunk-size", 2000),
+                getConfig().getInt("economy.reconcile.fetch-size", 1000),
+                getConfig().getInt("economy.reconcile.max-chunks-per-run", 50));
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, reconciler, 20L * 60 * 5, reconcilePeriod);
+
+        econ.setBalanceListener(leaderboard);
+
+        // wallet changes of other servers: drop stale cached wallets and load them again (outside of
+        // any wallet lock) while the player is still here, keep the leaderboard in step
+        outbox = new OutboxListener(Db::connect, Db.nodeId(), (id, balance) -> {
+            if (econ.invalidate(id) && Bukkit.getPlayer(id) != null) {
+                econ.load(id);
+                if (Bukkit.getPlayer(id) == null)
+                    econ.unload(id);   // quit while loading
+                else
+                    balance = econ.getBalance(id);
+            }
+            leaderboard.balanceChanged(id, balance);
+        });
+        outbox.start();
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, () -> {
+            // the seed reads the DB, so in-memory changes have to be there first
+            try {
+                econ.flush();
+            }
+            catch (Exception ex) {
+                log.warn("Economy flush before leaderboard seed failed", ex);
+            }
+            leaderboard.run();
+        }, 20L * 5, 20L * 60);
+    }
+
+    /** economy.backend: memory - journaled {@link MemoryEconomy} in the data folder, no DB involved. */
+    private MemoryEconomy openMemoryEconomy() {
+        Path journal = getDataFolder().toPath().resolve(getConfig().getString("economy.memory.journal", "economy.journal"));
+        Duration sync = Duration.ofMillis(Math.max(0L, getConfig().getLong("economy.memory.sync-interval-ms", 1000L)));
+        try {
+            MemoryEconomy memory = new MemoryEconomy(journal, sync);
+            ChronaLog.get(ChronaPlugin.class).warn("Economy runs on the memory backend ({}, sync {} ms) - single server only, "
+                    + "no ledger maintenance, reconciliation, outbox or /baltop.", journal, sync.toMillis());
+            return memory;
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Couldnt open economy journal " + journal, e);
+        }
     }
 
     private void registerEvent(Listener listener) {
@@ -126,6 +294,29 @@ public final class ChronaPlugin extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        if (outbox != null)
+            outbox.close();
+        if (asyncEcon != null)
+            asyncEcon.close();
+        if (econ != null)
+            econ.close();
+        if (memoryEcon != null) {
+            try {
+                memoryEcon.close();
+            }
+            catch (IOException e) {
+                ChronaLog.get(ChronaPlugin.class).warn("Couldnt close economy journal: {}", e.getMessage());
+            }
+        }
+        // append pipelines write what is still queued before the pools go away
+        if (regionWatcher != null)
+            regionWatcher.close();
+        if (jobRuntime != null)
+            jobRuntime.close();
+        if (regionVisitLogService != null)
+            regionVisitLogService.close();
+        if (dialogueService != null)
+            dialogueService.close();
         Db.close();
         persistence.saveAll(npcCtrl.runtimes());
         for (var name : npcCtrl.listNames()) {
@@ -146,8 +337,39 @@ public final class ChronaPlugin extends JavaPlugin {
         return minigames;
     }
 
-    public PgEconomy getEcon() {
-        return econ;
+    /** Stripes the wallets listed under economy.hot-accounts ("uuid": shards), see PgEconomy#enableHotAccount. */
+    private void configureHotAccounts(PgEconomy pgEcon) {
+        var logger = ChronaLog.get(ChronaPlugin.class);
+        var section = getConfig().getConfigurationSection("economy.hot-accounts");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                try {
+                    pgEcon.enableHotAccount(UUID.fromString(key), section.getInt(key, 16));
+                }
+                catch (Exception ex) {
+                    logger.warn("Failed to set up hot account {}", key, ex);
+                }
+            }
+        }
+
+        try {
+            pgEcon.refreshHotAccounts();
+        }
+        catch (Exception ex) {
+            logger.warn("Failed to load hot accounts", ex);
+        }
+    }
+
+    public EconomyService getEcon() {
+        return economy;
+    }
+
+    public AsyncEconomyService getAsyncEcon() {
+        return asyncEcon;
+    }
+
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
     }
 
     public PlayerRepo getPlayerRepo() {
@@ -178,12 +400,28 @@ public final class ChronaPlugin extends JavaPlugin {
         regionService = new RegionService(this);
         regionService.setRegions(regions);
         getServer().getPluginManager().registerEvents(regionService, this);
+        regionService.setTrackingBudget(getConfig().getLong("regions.tracking.budget-us", 0L));
+
+        if (getConfig().getBoolean("regions.hot-reload.enabled", true)) {
+            try {
+                regionWatcher = new RegionFileWatcher(regionsFile, regionService,
+                        Duration.ofMillis(getConfig().getLong("regions.hot-reload.debounce-ms", 500L)));
+            }
+            catch (IOException e) {
+                ChronaLog.get(ChronaPlugin.class).warn("Couldnt watch {} for changes – no hot reload.", regionsFile, e);
+            }
+        }
 
         RegionApi.init(regionService);
     }
 
     private void initRegionLogging() {
-        regionVisitLogService = new RegionVisitLogService(this);
+        var cfg = getConfig();
+        regionVisitLogService = new RegionVisitLogService(new AppendPipeline.Settings(
+                cfg.getInt("regions.visit-log.buffer", 50_000),
+                cfg.getInt("regions.visit-log.batch-size", 2_000),
+                Duration.ofMillis(cfg.getLong("regions.visit-log.flush-interval-ms", 1_000L)),
+                AppendPipeline.Overflow.DROP_NEWEST, Duration.ZERO));
         RegionVisitLogListener listener = new RegionVisitLogListener(regionVisitLogService);
         getServer().getPluginManager().registerEvents(listener, this);
     }
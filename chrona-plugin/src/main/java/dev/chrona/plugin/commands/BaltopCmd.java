@@ -0,0 +1,66 @@
+package dev.chrona.plugin.commands;
+
+import dev.chrona.economy.Leaderboard;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.UUID;
+
+public final class BaltopCmd implements CommandExecutor {
+
+    private static final int PAGE_SIZE = 10;
+
+    private final Leaderboard leaderboard;
+
+    public BaltopCmd(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+
+    @Override
+    public boolean onCommand(@NotNull CommandSender s, @NotNull Command cmd, @NotNull String lbl, String[] a) {
+        int page = 1;
+        if (a.length == 1) {
+            try {
+                page = Integer.parseInt(a[0]);
+            } catch (NumberFormatException e) {
+                s.sendMessage("§7Use: /" + lbl + " [page]");
+                return true;
+            }
+        }
+
+        int pages = Math.max(1, (leaderboard.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        if (page < 1 || page > pages) {
+            s.sendMessage("§cPage must be 1-" + pages + ".");
+            return true;
+        }
+
+        // in-memory index, no DB access on the main thread
+        List<Leaderboard.Entry> entries = leaderboard.top(page * PAGE_SIZE);
+        int from = (page - 1) * PAGE_SIZE;
+        if (from >= entries.size()) {
+            s.sendMessage("§7No entries.");
+            return true;
+        }
+
+        s.sendMessage("§6Richest players §8(" + page + "/" + pages + ")");
+        for (Leaderboard.Entry e : entries.subList(from, entries.size()))
+            s.sendMessage("§7#" + e.rank() + " §e" + nameOf(e.playerId()) + " §8- §e" + e.balance() + " Ð");
+
+        if (s instanceof Player p) {
+            int rank = leaderboard.rankOf(p.getUniqueId());
+            if (rank > 0)
+                p.sendMessage("§7Your rank: §e#" + rank);
+        }
+        return true;
+    }
+
+    private static String nameOf(UUID playerId) {
+        String name = Bukkit.getOfflinePlayer(playerId).getName();
+        return name != null ? name : playerId.toString();
+    }
+}
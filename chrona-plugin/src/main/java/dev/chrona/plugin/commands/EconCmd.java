@@ -1,6 +1,7 @@
 package dev.chrona.plugin.commands;
 
-import dev.chrona.economy.EconomyService;
+import dev.chrona.common.metrics.Metrics;
+import dev.chrona.economy.AsyncEconomyService;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -8,24 +9,30 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
-import java.sql.SQLException;
+import java.util.List;
 import java.util.UUID;
 
 public class EconCmd implements CommandExecutor {
 
-    private final EconomyService econ;
+    private final AsyncEconomyService econ;
 
-    public EconCmd(EconomyService econ) {
+    public EconCmd(AsyncEconomyService econ) {
         this.econ = econ;
     }
 
     @Override
     public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
+        // /econ metrics [prefix] - also from the console
+        if (args.length >= 1 && args[0].equalsIgnoreCase("metrics")) {
+            showMetrics(sender, args.length >= 2 ? args[1] : "");
+            return true;
+        }
+
         if (!(sender instanceof Player player))
             return true;
 
         if (!(args.length == 3)) {
-            player.sendMessage("§7Use: /" + label + " <mint|burn> <player> <amount>");
+            player.sendMessage("§7Use: /" + label + " <mint|burn> <player> <amount> | /" + label + " metrics [prefix]");
             return true;
         }
 
@@ -38,26 +45,35 @@ public class EconCmd implements CommandExecutor {
         long amount = Long.parseLong(args[2]);
 
         switch (args[0].toLowerCase()) {
-            case "mint" -> {
-                try {
-                    long newBalance = econ.mint(player.getUniqueId(), target.getUniqueId(), amount, UUID.randomUUID());
-                    target.sendMessage("§aYour wallet has been minted §e" + amount + " Ð §aby an admin. New balance: §e" + newBalance + " Ð");
-                }
-                catch (SQLException e) {
-                    sender.sendMessage("§cError");
-                }
-            }
-            case "burn" -> {
-                try {
-                    long newBalance = econ.burn(player.getUniqueId(), target.getUniqueId(), amount, UUID.randomUUID());
-                    target.sendMessage("§aYour wallet has been burned §e" + amount + " Ð §aby an admin. New balance: §e" + newBalance + " Ð");
-                }
-                catch (SQLException e) {
-                    sender.sendMessage("§cError");
-                }
-            }
+            case "mint" -> econ.mint(player.getUniqueId(), target.getUniqueId(), amount, UUID.randomUUID())
+                    .whenComplete((newBalance, ex) -> {
+                        if (ex != null) {
+                            sender.sendMessage("§cError");
+                            return;
+                        }
+                        target.sendMessage("§aYour wallet has been minted §e" + amount + " Ð §aby an admin. New balance: §e" + newBalance + " Ð");
+                    });
+            case "burn" -> econ.burn(player.getUniqueId(), target.getUniqueId(), amount, UUID.randomUUID())
+                    .whenComplete((newBalance, ex) -> {
+                        if (ex != null) {
+                            sender.sendMessage("§cError");
+                            return;
+                        }
+                        target.sendMessage("§aYour wallet has been burned §e" + amount + " Ð §aby an admin. New balance: §e" + newBalance + " Ð");
+                    });
             default -> sender.sendMessage("§cUnknown subcommand. Use: /" + label + " <mint|burn> <player> <amount>");
         }
         return true;
     }
+
+    private static void showMetrics(CommandSender sender, String prefix) {
+        List<String> lines = Metrics.report(prefix);
+        if (lines.isEmpty()) {
+            sender.sendMessage("§7No metrics for '" + prefix + "' yet.");
+            return;
+        }
+        sender.sendMessage("§6Metrics §7(" + prefix + "*, latencies in ms)");
+        for (String line : lines)
+            sender.sendMessage("§7" + line);
+    }
 }
@@ -1,6 +1,6 @@
 package dev.chrona.plugin.commands;
 
-import dev.chrona.economy.EconomyService;
+import dev.chrona.economy.AsyncEconomyService;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -8,13 +8,13 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
-import java.sql.SQLException;
+import java.util.concurrent.RejectedExecutionException;
 
 public final class PayCmd implements CommandExecutor {
 
-    private final EconomyService econ;
+    private final AsyncEconomyService econ;
 
-    public PayCmd(EconomyService e) {
+    public PayCmd(AsyncEconomyService e) {
         this.econ = e;
     }
 
@@ -53,13 +53,18 @@ public final class PayCmd implements CommandExecutor {
             return true;
         }
 
-        try {
-            long newBalance = econ.pay(p.getUniqueId(), target.getUniqueId(), amount);
+        econ.pay(p.getUniqueId(), target.getUniqueId(), amount).whenComplete((newBalance, ex) -> {
+            if (ex instanceof RejectedExecutionException) {
+                p.sendMessage("§cEconomy is busy, please try again.");
+                return;
+            }
+            if (ex != null) {
+                p.sendMessage("§cPayment failed.");
+                return;
+            }
             p.sendMessage("§aPaid §e" + amount + " Ð §ato §6" + target.getName() + " §8- New balance: §e" + newBalance + " Ð");
             target.sendMessage("§6" + p.getName() + " §apaid you §e" + amount + " Ð");
-        } catch (SQLException ex) {
-            p.sendMessage("§cPayment failed.");
-        }
+        });
         return true;
     }
 }
@@ -1,22 +1,31 @@
 package dev.chrona.plugin.commands;
 
-import dev.chrona.economy.EconomyService;
-import dev.chrona.economy.Transfer;
+import dev.chrona.economy.AsyncEconomyService;
+import dev.chrona.economy.TransferCursor;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.jetbrains.annotations.NotNull;
 
 import java.sql.Date;
-import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
-public final class WalletCmd implements CommandExecutor {
+public final class WalletCmd implements CommandExecutor, Listener {
 
-    private final EconomyService econ;
+    private static final int MAX_PAGE = 100;
 
-    public WalletCmd(EconomyService e) {
+    private final AsyncEconomyService econ;
+    // written from the completion callbacks, cleared on quit
+    private final Map<UUID, HistoryPosition> positions = new ConcurrentHashMap<>();
+
+    public WalletCmd(AsyncEconomyService e) {
         this.econ = e;
     }
 
@@ -27,13 +36,13 @@ public final class WalletCmd implements CommandExecutor {
 
         switch (args.length) {
             case 0 -> {
-                try {
-                    long bal = econ.getBalance(player.getUniqueId());
+                econ.getBalance(player.getUniqueId()).whenComplete((bal, ex) -> {
+                    if (ex != null) {
+                        player.sendMessage("§cError.");
+                        return;
+                    }
                     player.sendMessage("§6Balance: §e" + bal + " Ð");
-                }
-                catch (SQLException ex) {
-                    player.sendMessage("§cError.");
-                }
+                });
                 return true;
             }
             case 3 -> {
@@ -48,25 +57,66 @@ public final class WalletCmd implements CommandExecutor {
                     return true;
                 }
 
-                int limit = Integer.parseInt(args[2]);
+                // "next" continues where the last page for this target ended
+                HistoryPosition pos = positions.get(player.getUniqueId());
+                boolean next = args[2].equalsIgnoreCase("next");
+                if (next && (pos == null || !pos.target().equals(target.getUniqueId()) || pos.cursor() == null)) {
+                    player.sendMessage("§7No more transfers.");
+                    return true;
+                }
+
+                int limit = next ? pos.limit() : parseLimit(args[2]);
+                if (limit <= 0) {
+                    player.sendMessage("§7Use: /" + lbl + " history <player> <1-" + MAX_PAGE + "|next>");
+                    return true;
+                }
+                TransferCursor after = next ? pos.cursor() : null;
+
+                econ.getTransferPage(target.getUniqueId(), after, limit).whenComplete((page, ex) -> {
+                    if (ex != null) {
+                        player.sendMessage("§cError.");
+                        return;
+                    }
+                    positions.put(player.getUniqueId(), new HistoryPosition(target.getUniqueId(), limit, page.next()));
 
-                try {
-                    Transfer[] transfers = econ.getTransfers(target.getUniqueId(), limit, 0);
-                    player.sendMessage("§6Last " + limit + " transfers for §e" + target.getName() + "§6:");
-                    for (var transfer : transfers) {
+                    player.sendMessage("§6" + (next ? "Next " : "Last ") + limit + " transfers for §e" + target.getName() + "§6:");
+                    for (var transfer : page.transfers()) {
                         player.sendMessage("§7[" + new Date(transfer.timestamp()) + "] " +
-                                "§e" + transfer.amount() + " Ð §7from §e" + Bukkit.getOfflinePlayer(transfer.from()).getName() + " §7to §e" + Bukkit.getOfflinePlayer(transfer.to()).getName() + " " +
+                                "§e" + transfer.amount() + " Ð §7from §e" + nameOf(transfer.from()) + " §7to §e" + nameOf(transfer.to()) + " " +
                                 "§7(Reason: " + transfer.reason().value() + ")");
                     }
-                }
-                catch (SQLException e) {
-                    player.sendMessage("§cError.");
-                    return true;
-                }
+                    if (page.next() != null)
+                        player.sendMessage("§7More: /" + lbl + " history " + target.getName() + " next");
+                });
                 return true;
             }
             default -> player.sendMessage("§7Use: /" + lbl + " - check balance");
         }
         return false;
     }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        positions.remove(event.getPlayer().getUniqueId());
+    }
+
+    /** Page size in 1..MAX_PAGE, or -1 if the argument isn't one. */
+    private static int parseLimit(String arg) {
+        try {
+            int limit = Integer.parseInt(arg);
+            return limit > 0 && limit <= MAX_PAGE ? limit : -1;
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String nameOf(UUID playerId) {
+        if (playerId == null)
+            return "-";
+        String name = Bukkit.getOfflinePlayer(playerId).getName();
+        return name != null ? name : playerId.toString();
+    }
+
+    private record HistoryPosition(UUID target, int limit, TransferCursor cursor) {}
 }
@@ -1,6 +1,7 @@
 package dev.chrona.plugin.listeners;
 
 import dev.chrona.common.log.ChronaLog;
+import dev.chrona.economy.CachedEconomy;
 import dev.chrona.economy.PlayerRepo;
 import dev.chrona.plugin.ChronaPlugin;
 import org.bukkit.Bukkit;
@@ -11,17 +12,24 @@ import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.slf4j.Logger;
 
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class JoinListener implements Listener {
     private final ChronaPlugin plugin;
     private final PlayerRepo repo;
+    // null on the memory backend (no wallet cache)
+    private final CachedEconomy econ;
     private final Logger logger;
+    // online according to join/quit; the async wallet load checks it after putting the wallet in the cache
+    private final Set<UUID> online = ConcurrentHashMap.newKeySet();
 
-    public JoinListener(ChronaPlugin plugin, PlayerRepo repo) {
+    public JoinListener(ChronaPlugin plugin, PlayerRepo repo, CachedEconomy econ) {
         this.logger = ChronaLog.get(JoinListener.class);
         this.plugin = plugin;
         this.repo = repo;
+        this.econ = econ;
     }
 
     @EventHandler
@@ -30,10 +38,16 @@ public final class JoinListener implements Listener {
         UUID uuid = player.getUniqueId();
         String name = player.getName();
         String locale = player.locale().toLanguageTag();
+        online.add(uuid);
 
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
             try {
                 repo.ensurePlayerAndWallet(uuid, name, locale);
+                if (econ != null) {
+                    econ.load(uuid);
+                    if (!online.contains(uuid))
+                        econ.unload(uuid);   // quit while loading
+                }
             } catch (Exception ex) {
                 logger.info("Failed to ensure player/wallet for {}", name, ex);
             }
@@ -43,6 +57,9 @@ public final class JoinListener implements Listener {
     @EventHandler
     public void onQuit(PlayerQuitEvent e) {
         var id = e.getPlayer().getUniqueId();
+        online.remove(id);
+        if (econ != null)
+            econ.unload(id);
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
             try {
                 repo.touchLastSeen(id);
@@ -3,6 +3,8 @@ package dev.chrona.quest.state;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import dev.chrona.common.Db;
+import dev.chrona.common.db.AppendPipeline;
+import dev.chrona.common.db.MultiRowInsert;
 import dev.chrona.common.log.ChronaLog;
 import dev.chrona.quest.model.QuestDefinition;
 import dev.chrona.quest.model.QuestRepeatability;
@@ -18,8 +20,10 @@ import java.util.*;
  * Database-backed implementation of the QuestStateStore interface.
  * This class handles the persistence and retrieval of player quest states,
  * objective progress, and quest history using a relational database.
+ * History entries are append-only and written in batches through an {@link AppendPipeline}
+ * on the telemetry pool; call {@link #close()} on shutdown to write the pending ones.
  */
-public final class DbQuestStateStore implements QuestStateStore {
+public final class DbQuestStateStore implements QuestStateStore, AutoCloseable {
 
     private static final Logger log = ChronaLog.get(DbQuestStateStore.class);
     private static final String T_STATE = "player_quest";
@@ -28,9 +32,22 @@ public final class DbQuestStateStore implements QuestStateStore {
 
     private final DataSource ds;
     private final Gson gson = new GsonBuilder().create();
+    private final AppendPipeline<QuestHistoryEntry> history;
 
     public DbQuestStateStore() {
-        this.ds = Db.ds();
+        this.ds = Db.ds(Db.Pool.GAMEPLAY);
+        this.history = new AppendPipeline<>("quest_history", Db.ds(Db.Pool.TELEMETRY),
+                new MultiRowInsert<QuestHistoryEntry>(T_HIST,
+                        "player_id, quest_id, type, action, from_state, to_state, world, x, y, z, extra, created_at",
+                        "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?::jsonb, ?)",
+                        this::bindHistory),
+                AppendPipeline.Settings.defaults());
+    }
+
+    /** Writes pending history entries. */
+    @Override
+    public void close() {
+        history.close();
     }
 
     @Override
@@ -270,34 +287,26 @@ public final class DbQuestStateStore implements QuestStateStore {
 
     @Override
     public void logHistory(QuestHistoryEntry e) {
-        String sql = "INSERT INTO " + T_HIST +
-                " (player_id, quest_id, type, action, from_state, to_state, world, x, y, z, extra, created_at) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?::jsonb, ?)";
-
-        try (Connection conn = ds.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setObject(1, e.playerId());
-            ps.setString(2, e.questId());
-            ps.setString(3, e.type().name());
-            ps.setString(4, e.action());
-            ps.setString(5, e.fromState());
-            ps.setString(6, e.toState());
-            ps.setString(7, e.world());
-            if (e.x() != null) ps.setInt(8, e.x()); else ps.setNull(8, Types.INTEGER);
-            if (e.y() != null) ps.setInt(9, e.y()); else ps.setNull(9, Types.INTEGER);
-            if (e.z() != null) ps.setInt(10, e.z()); else ps.setNull(10, Types.INTEGER);
-            if (e.extra() != null && !e.extra().isEmpty())
-                ps.setString(11, gson.toJson(e.extra()));
-            else
-                ps.setNull(11, Types.VARCHAR);
-            ps.setTimestamp(12, Timestamp.from(e.createdAt()));
+        if (!history.append(e))
+            log.warn("logHistory({}, {}) dropped: history queue full", e.playerId(), e.questId());
+    }
 
-            ps.executeUpdate();
-        }
-        catch (SQLException ex) {
-            log.error("logHistory({}, {}) failed: {}", e.playerId(), e.questId(), ex.getMessage(), ex);
-        }
+    private void bindHistory(PreparedStatement ps, int i, QuestHistoryEntry e) throws SQLException {
+        ps.setObject(i, e.playerId());
+        ps.setString(i + 1, e.questId());
+        ps.setString(i + 2, e.type().name());
+        ps.setString(i + 3, e.action());
+        ps.setString(i + 4, e.fromState());
+        ps.setString(i + 5, e.toState());
+        ps.setString(i + 6, e.world());
+        if (e.x() != null) ps.setInt(i + 7, e.x()); else ps.setNull(i + 7, Types.INTEGER);
+        if (e.y() != null) ps.setInt(i + 8, e.y()); else ps.setNull(i + 8, Types.INTEGER);
+        if (e.z() != null) ps.setInt(i + 9, e.z()); else ps.setNull(i + 9, Types.INTEGER);
+        if (e.extra() != null && !e.extra().isEmpty())
+            ps.setString(i + 10, gson.toJson(e.extra()));
+        else
+            ps.setNull(i + 10, Types.VARCHAR);
+        ps.setTimestamp(i + 11, Timestamp.from(e.createdAt()));
     }
 
     private PlayerQuestState mapState(ResultSet rs) throws SQLException {